@@ -7,37 +7,98 @@ import financialmanager.model.entities.Category;
 import financialmanager.model.entities.CreditCard;
 import financialmanager.model.entities.Expense;
 import financialmanager.model.entities.Income;
+import financialmanager.model.managers.CategoryRegistry;
 import financialmanager.model.managers.CreditCardManager;
 import financialmanager.model.enums.ExpenseType;
 import financialmanager.model.enums.IncomeSource;
+import financialmanager.model.repositories.ColumnarExpenseRepository;
+import financialmanager.model.repositories.ColumnarIncomeRepository;
+import financialmanager.model.repositories.ExpenseRepository;
 import financialmanager.model.repositories.InMemoryExpenseRepository;
 import financialmanager.model.repositories.InMemoryIncomeRepository;
+import financialmanager.model.repositories.IncomeRepository;
+import financialmanager.model.repositories.MappedExpenseRepository;
+import financialmanager.model.repositories.MappedIncomeRepository;
+import financialmanager.model.repositories.PartitionedExpenseRepository;
+import financialmanager.model.repositories.PartitionedIncomeRepository;
+import financialmanager.persistence.AutoSaveService;
+import financialmanager.persistence.BinarySnapshot;
 import financialmanager.persistence.JsonDataManager;
+import financialmanager.persistence.MonthSegmentStore;
 import financialmanager.persistence.WindowCloseListener;
+import financialmanager.persistence.WriteAheadLog;
 import financialmanager.service.AnalyticsService;
 import financialmanager.service.ExpenseService;
 import financialmanager.service.IncomeService;
+import financialmanager.service.TransactionManager;
 import financialmanager.view.frames.MainApplicationFrame;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Main {
+    // Категории, расходы и доходы, журнал изменений
+    private static final int LOADING_STAGES = 4;
+
     private static JsonDataManager dataManager;
     private static List<Category> categories;
     private static CreditCardManager creditCardManager;
+    private static WriteAheadLog<Expense> expenseLog;
+    private static WriteAheadLog<Income> incomeLog;
+    private static boolean sampleDataAdded;
 
     public static void main(String[] args) {
         // Инициализация менеджера данных
         dataManager = new JsonDataManager();
 
-        // Инициализация репозиториев
-        InMemoryExpenseRepository expenseRepository = new InMemoryExpenseRepository();
-        InMemoryIncomeRepository incomeRepository = new InMemoryIncomeRepository();
-
-        // Загрузка данных
-        loadAllData(expenseRepository, incomeRepository);
+        // Инициализация репозиториев (-Dfinancialmanager.storage=columnar|mapped|partitioned)
+        ExpenseRepository expenseRepository = new InMemoryExpenseRepository();
+        IncomeRepository incomeRepository = new InMemoryIncomeRepository();
+        String storage = System.getProperty("financialmanager.storage", "memory");
+        if (storage.equals("columnar")) {
+            expenseRepository = new ColumnarExpenseRepository();
+            incomeRepository = new ColumnarIncomeRepository();
+        } else if (storage.equals("mapped")) {
+            try {
+                MappedExpenseRepository mappedExpenses = new MappedExpenseRepository(Path.of("data", "expenses"));
+                MappedIncomeRepository mappedIncomes = new MappedIncomeRepository(Path.of("data", "incomes"));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        mappedExpenses.close();
+                        mappedIncomes.close();
+                    } catch (IOException e) {
+                        System.err.println("Ошибка закрытия файлов данных: " + e.getMessage());
+                    }
+                }));
+                expenseRepository = mappedExpenses;
+                incomeRepository = mappedIncomes;
+            } catch (IOException e) {
+                System.err.println("Ошибка открытия файлов данных: " + e.getMessage() + ". Использую хранилище в памяти");
+            }
+        } else if (storage.equals("partitioned")) {
+            // Помесячные файлы, в памяти не больше financialmanager.residentMonths месяцев
+            int residentMonths = Integer.getInteger("financialmanager.residentMonths", 12);
+            try {
+                expenseRepository = new PartitionedExpenseRepository(
+                        new MonthSegmentStore<>(Path.of("data", "expenses"), BinarySnapshot.EXPENSES), residentMonths);
+                incomeRepository = new PartitionedIncomeRepository(
+                        new MonthSegmentStore<>(Path.of("data", "incomes"), BinarySnapshot.INCOMES), residentMonths);
+            } catch (IOException e) {
+                System.err.println("Ошибка открытия файлов данных: " + e.getMessage() + ". Использую хранилище в памяти");
+                expenseRepository = new InMemoryExpenseRepository();
+                incomeRepository = new InMemoryIncomeRepository();
+            }
+        }
 
         // Инициализация менеджера кредитных карт
         creditCardManager = new CreditCardManager();
@@ -48,33 +109,98 @@ public class Main {
         IncomeService incomeService = new IncomeService(incomeRepository);
         AnalyticsService analyticsService = new AnalyticsService(expenseRepository, incomeRepository);
 
+        // Фоновое автосохранение изменений
+        AutoSaveService autoSaveService = new AutoSaveService(dataManager, expenseRepository, incomeRepository);
+
+        // Операции с оплатой картой проводятся транзакциями над сервисами и картами
+        TransactionManager transactionManager = new TransactionManager(expenseService, incomeService,
+                creditCardManager);
+
         // Создание контроллеров
-        ExpenseController expenseController = new ExpenseController(expenseService);
-        IncomeController incomeController = new IncomeController(incomeService);
+        ExpenseController expenseController = new ExpenseController(expenseService, transactionManager);
+        IncomeController incomeController = new IncomeController(incomeService, transactionManager);
         AnalyticsController analyticsController = new AnalyticsController(analyticsService);
 
-        // Запуск GUI с передачей менеджера карт
-        launchGUI(expenseController, incomeController, analyticsController,
-                expenseRepository, incomeRepository, dataManager, creditCardManager);
+        // Окно показывается сразу, до загрузки данных. Помесячное хранилище загружает месяцы
+        // по требованию, поэтому таблицы по умолчанию показывают один месяц
+        boolean monthlyView = expenseRepository instanceof PartitionedExpenseRepository;
+        MainApplicationFrame frame = launchGUI(expenseController, incomeController, analyticsController,
+                autoSaveService, dataManager, creditCardManager, monthlyView);
+        if (frame == null) {
+            return;
+        }
+
+        // Загрузка данных идет в этом потоке, пока окно показывает индикатор
+        loadAllData(expenseRepository, incomeRepository, frame);
+
+        // Журналы подключаются после загрузки, чтобы загруженные данные не считались изменениями
+        if (expenseLog != null) {
+            expenseService.addJournal(expenseLog);
+        }
+        if (incomeLog != null) {
+            incomeService.addJournal(incomeLog);
+        }
+        expenseService.addJournal(autoSaveService.expenseJournal());
+        incomeService.addJournal(autoSaveService.incomeJournal());
+        CategoryRegistry.addListener(autoSaveService::markCategoriesDirty);
+        if (sampleDataAdded) {
+            autoSaveService.markAllDirty();
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            frame.showData();
+            printStartupInfo(expenseController, incomeController, analyticsController, creditCardManager);
+        });
     }
 
-    private static void loadAllData(InMemoryExpenseRepository expenseRepository,
-                                    InMemoryIncomeRepository incomeRepository) {
+    private static void loadAllData(ExpenseRepository expenseRepository,
+                                    IncomeRepository incomeRepository,
+                                    MainApplicationFrame frame) {
         System.out.println("=== ЗАГРУЗКА ДАННЫХ ===");
 
         try {
             // Загружаем категории
+            reportProgress(frame, "Загрузка категорий...", 0);
             categories = dataManager.loadCategories();
             System.out.println("Категории загружены: " + categories.size());
 
-            // Загружаем расходы и доходы
-            dataManager.loadExpenses(expenseRepository);
-            dataManager.loadIncomes(incomeRepository);
+            // Расходы и доходы загружаются параллельно (постоянное хранилище уже содержит свои данные)
+            reportProgress(frame, "Загрузка расходов и доходов...", 1);
+            AtomicInteger completed = new AtomicInteger(1);
+            ExecutorService loaders = Executors.newFixedThreadPool(2);
+            try {
+                List<Future<Void>> results = loaders.invokeAll(List.<Callable<Void>>of(
+                        () -> {
+                            if (expenseRepository.count() == 0) {
+                                dataManager.loadExpenses(expenseRepository);
+                            }
+                            reportProgress(frame, "Расходы загружены", completed.incrementAndGet());
+                            return null;
+                        },
+                        () -> {
+                            if (incomeRepository.count() == 0) {
+                                dataManager.loadIncomes(incomeRepository);
+                            }
+                            reportProgress(frame, "Доходы загружены", completed.incrementAndGet());
+                            return null;
+                        }));
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+            } finally {
+                loaders.shutdown();
+            }
+
+            // Применяем изменения из журнала, сделанные после последнего сохранения
+            reportProgress(frame, "Применение журнала изменений...", 3);
+            expenseLog = dataManager.openExpenseLog(expenseRepository);
+            incomeLog = dataManager.openIncomeLog(incomeRepository);
 
             // Если данных нет - добавляем примеры
-            if (expenseRepository.findAll().isEmpty() && incomeRepository.findAll().isEmpty()) {
+            if (expenseRepository.count() == 0 && incomeRepository.count() == 0) {
                 System.out.println("Данных не найдено. Добавляю примеры...");
                 addSampleData(expenseRepository, incomeRepository);
+                sampleDataAdded = true;
             }
 
         } catch (Exception e) {
@@ -83,8 +209,12 @@ public class Main {
         }
     }
 
-    private static void addSampleData(InMemoryExpenseRepository expenseRepository,
-                                      InMemoryIncomeRepository incomeRepository) {
+    private static void reportProgress(MainApplicationFrame frame, String stage, int completed) {
+        SwingUtilities.invokeLater(() -> frame.showLoadingProgress(stage, completed, LOADING_STAGES));
+    }
+
+    private static void addSampleData(ExpenseRepository expenseRepository,
+                                      IncomeRepository incomeRepository) {
         try {
             // Находим категории
             Category food = findCategory("Еда");
@@ -191,46 +321,62 @@ public class Main {
         return categories.stream()
                 .filter(c -> c.getName().equals(name))
                 .findFirst()
-                .orElse(new Category("999", name, "Категория по умолчанию", "#CCCCCC"));
+                .orElseGet(() -> CategoryRegistry.intern("999", name, "Категория по умолчанию", "#CCCCCC"));
     }
 
-    private static void launchGUI(ExpenseController expenseController,
-                                  IncomeController incomeController,
-                                  AnalyticsController analyticsController,
-                                  InMemoryExpenseRepository expenseRepository,
-                                  InMemoryIncomeRepository incomeRepository,
-                                  JsonDataManager dataManager,
-                                  CreditCardManager creditCardManager) {
+    // Создает окно в EDT и ждет его появления; null, если запуск не удался
+    private static MainApplicationFrame launchGUI(ExpenseController expenseController,
+                                                  IncomeController incomeController,
+                                                  AnalyticsController analyticsController,
+                                                  AutoSaveService autoSaveService,
+                                                  JsonDataManager dataManager,
+                                                  CreditCardManager creditCardManager,
+                                                  boolean monthlyView) {
+        AtomicReference<MainApplicationFrame> launched = new AtomicReference<>();
+        try {
+            SwingUtilities.invokeAndWait(() -> launched.set(createFrame(expenseController, incomeController,
+                    analyticsController, autoSaveService, dataManager, creditCardManager, monthlyView)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+        }
+        return launched.get();
+    }
 
-        SwingUtilities.invokeLater(() -> {
-            try {
-                // Установка внешнего вида
-                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-
-                // Создание главного окна с передачей менеджера карт
-                MainApplicationFrame frame = new MainApplicationFrame(
-                        expenseController,
-                        incomeController,
-                        analyticsController,
-                        dataManager,
-                        creditCardManager
-                );
-
-                // Добавляем слушатель для сохранения данных при закрытии
-                frame.addWindowListener(new WindowCloseListener(
-                        dataManager, expenseRepository, incomeRepository
-                ));
-
-                // Вывод информации о запуске
-                printStartupInfo(expenseController, incomeController, analyticsController, creditCardManager);
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(null,
-                        "Ошибка при запуске приложения:\n" + e.getMessage(),
-                        "Ошибка", JOptionPane.ERROR_MESSAGE);
-            }
-        });
+    private static MainApplicationFrame createFrame(ExpenseController expenseController,
+                                                    IncomeController incomeController,
+                                                    AnalyticsController analyticsController,
+                                                    AutoSaveService autoSaveService,
+                                                    JsonDataManager dataManager,
+                                                    CreditCardManager creditCardManager,
+                                                    boolean monthlyView) {
+        try {
+            // Установка внешнего вида
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+
+            // Создание главного окна с передачей менеджера карт
+            MainApplicationFrame frame = new MainApplicationFrame(
+                    expenseController,
+                    incomeController,
+                    analyticsController,
+                    dataManager,
+                    creditCardManager,
+                    monthlyView
+            );
+
+            // Добавляем слушатель для сохранения данных при закрытии; выходит он сам после сохранения
+            frame.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            frame.addWindowListener(new WindowCloseListener(autoSaveService, dataManager));
+            return frame;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(null,
+                    "Ошибка при запуске приложения:\n" + e.getMessage(),
+                    "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
     }
 
     private static void printStartupInfo(ExpenseController expenseController,
@@ -240,8 +386,8 @@ public class Main {
 
         System.out.println("\n=== ФИНАНСОВЫЙ МЕНЕДЖЕР ЗАПУЩЕН ===");
         System.out.println("Статистика системы:");
-        System.out.println(" - Расходов: " + expenseController.getAll().size());
-        System.out.println(" - Доходов: " + incomeController.getAll().size());
+        System.out.println(" - Расходов: " + expenseController.count());
+        System.out.println(" - Доходов: " + incomeController.count());
         System.out.println(" - Кредитных карт: " + creditCardManager.size());
         System.out.println(" - Общая задолженность по картам: " + creditCardManager.getTotalDebt() + " ₽");
         System.out.println(" - Доступный кредит: " + creditCardManager.getTotalAvailableCredit() + " ₽");
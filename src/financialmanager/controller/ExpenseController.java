@@ -3,6 +3,7 @@ package financialmanager.controller;
 import financialmanager.model.entities.Expense;
 import financialmanager.model.enums.ExpenseType;
 import financialmanager.service.ExpenseService;
+import financialmanager.service.TransactionManager;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -11,8 +12,8 @@ import java.util.Optional;
 
 public class ExpenseController extends FinancialController<Expense> {
 
-    public ExpenseController(ExpenseService expenseService) {
-        super(expenseService);
+    public ExpenseController(ExpenseService expenseService, TransactionManager transactions) {
+        super(expenseService, transactions);
     }
 
     private ExpenseService getExpenseService() {
@@ -62,7 +63,7 @@ public class ExpenseController extends FinancialController<Expense> {
 
     public void RunProgramPotentialExpenses() {
         System.out.println("Программа управления расходами запущена");
-        System.out.println("Всего расходов: " + getAll().size());
+        System.out.println("Всего расходов: " + count());
         System.out.println("Общий баланс расходов: " + getTotalBalance());
     }
 }
\ No newline at end of file
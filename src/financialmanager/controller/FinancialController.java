@@ -2,16 +2,31 @@ package financialmanager.controller;
 
 import financialmanager.model.entities.FinancialOperation;
 import financialmanager.service.FinancialService;
+import financialmanager.service.OperationJournal;
+import financialmanager.service.TransactionManager;
 import java.util.Objects;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public abstract class FinancialController<T extends FinancialOperation> {
     protected final FinancialService<T> service;
+    private final TransactionManager transactions;
 
-    public FinancialController(FinancialService<T> service) {
+    public FinancialController(FinancialService<T> service, TransactionManager transactions) {
         this.service = Objects.requireNonNull(service, "Сервис не может быть null");
+        this.transactions = Objects.requireNonNull(transactions, "Менеджер транзакций не может быть null");
+    }
+
+    // Подписка на изменения операций, например для обновления таблицы
+    public void addJournal(OperationJournal<T> journal) {
+        service.addJournal(journal);
+    }
+
+    // Операции вместе с изменением баланса карты применяются одной транзакцией
+    public TransactionManager.Transaction beginTransaction() {
+        return transactions.begin();
     }
 
     public void add(T operation) {
@@ -24,6 +39,54 @@ public abstract class FinancialController<T extends FinancialOperation> {
         }
     }
 
+    // Пакетные вызовы выводят один итог вместо строки на каждую операцию
+    public void addAll(List<T> operations) {
+        try {
+            service.addOperations(operations);
+            System.out.println("Добавлено операций: " + operations.size());
+        } catch (Exception e) {
+            System.err.println("Ошибка при добавлении операций: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Для импорта: пропускает операции, похожие на сохраненные ранее; возвращает число пропущенных
+    public int addAllNew(List<T> operations, Set<String> sessionIds) {
+        try {
+            int skipped = service.addNewOperations(operations, sessionIds);
+            System.out.println("Добавлено операций: " + (operations.size() - skipped)
+                    + ", пропущено дубликатов: " + skipped);
+            return skipped;
+        } catch (Exception e) {
+            System.err.println("Ошибка при добавлении операций: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    public List<T> findDuplicates(T operation) {
+        return service.findDuplicates(operation);
+    }
+
+    public void updateAll(List<T> operations) {
+        try {
+            service.updateOperations(operations);
+            System.out.println("Обновлено операций: " + operations.size());
+        } catch (Exception e) {
+            System.err.println("Ошибка при обновлении операций: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    public void deleteAll(List<String> ids) {
+        try {
+            service.deleteOperations(ids);
+            System.out.println("Удалено операций: " + ids.size());
+        } catch (Exception e) {
+            System.err.println("Ошибка при удалении операций: " + e.getMessage());
+            throw e;
+        }
+    }
+
     public void delete(String id) {
         try {
             service.deleteOperation(id);
@@ -44,6 +107,16 @@ public abstract class FinancialController<T extends FinancialOperation> {
         }
     }
 
+    public void update(T operation, long expectedVersion) {
+        try {
+            service.updateOperation(operation, expectedVersion);
+            System.out.println("Операция успешно обновлена: " + operation.getName());
+        } catch (Exception e) {
+            System.err.println("Ошибка при обновлении операции: " + e.getMessage());
+            throw e;
+        }
+    }
+
     public Optional<T> getById(String id) {
         return service.getOperationById(id);
     }
@@ -60,9 +133,17 @@ public abstract class FinancialController<T extends FinancialOperation> {
         return service.getOperationsByCategory(categoryId);
     }
 
+    public List<T> getByCreditCardId(String creditCardId) {
+        return service.getOperationsByCreditCardId(creditCardId);
+    }
+
     public boolean exists(String id) {
         return service.operationExists(id);
     }
 
+    public int count() {
+        return service.getOperationCount();
+    }
+
     public abstract double getTotalBalance();
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package financialmanager.controller;
 import financialmanager.model.entities.Income;
 import financialmanager.model.enums.IncomeSource;
 import financialmanager.service.IncomeService;
+import financialmanager.service.TransactionManager;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -11,8 +12,8 @@ import java.util.Optional;
 
 public class IncomeController extends FinancialController<Income> {
 
-    public IncomeController(IncomeService incomeService) {
-        super(incomeService);
+    public IncomeController(IncomeService incomeService, TransactionManager transactions) {
+        super(incomeService, transactions);
     }
 
     private IncomeService getIncomeService() {
@@ -62,7 +63,7 @@ public class IncomeController extends FinancialController<Income> {
 
     public void RunProgramPotentialIncomes() {
         System.out.println("Программа управления доходами запущена");
-        System.out.println("Всего доходов: " + getAll().size());
+        System.out.println("Всего доходов: " + count());
         System.out.println("Общий баланс доходов: " + getTotalBalance());
     }
 }
\ No newline at end of file
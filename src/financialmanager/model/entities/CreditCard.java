@@ -2,22 +2,32 @@ package financialmanager.model.entities;
 
 import java.time.LocalDate;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Задолженность хранится атомарным счетчиком в копейках: списание и пополнение - циклы
+// compareAndSet, поэтому проверка лимита и изменение баланса выполняются как одно действие
+// и параллельные операции по одной карте не превышают лимит и не теряют обновления.
 public class CreditCard {
     private String id;
     private String cardNumber;
     private String ownerName;  // Имя владельца как строка (упрощенно)
-    private double creditLimit;
-    private double currentBalance;
+    private volatile long creditLimit;
+    private final AtomicLong currentBalance = new AtomicLong();
     private LocalDate expiryDate;
+    private volatile ChangeListener changeListener;
+
+    // Вызывается в потоке, изменившем баланс или лимит; изменения - в копейках.
+    // Подписывается менеджер карт
+    public interface ChangeListener {
+        void onCardChanged(CreditCard card, long balanceDelta, long limitDelta);
+    }
 
     public CreditCard(String id, String cardNumber, String ownerName,
                       double creditLimit, LocalDate expiryDate) {
         this.id = Objects.requireNonNull(id, "ID не может быть null");
         this.cardNumber = Objects.requireNonNull(cardNumber, "Номер карты не может быть null");
         this.ownerName = Objects.requireNonNull(ownerName, "Имя владельца не может быть null");
-        this.creditLimit = creditLimit;
-        this.currentBalance = 0;
+        this.creditLimit = Money.of(creditLimit).getMinorUnits();
         this.expiryDate = Objects.requireNonNull(expiryDate, "Срок действия не может быть null");
     }
 
@@ -25,43 +35,104 @@ public class CreditCard {
     public String getId() { return id; }
     public String getCardNumber() { return cardNumber; }
     public String getOwnerName() { return ownerName; }
-    public double getCreditLimit() { return creditLimit; }
-    public double getCurrentBalance() { return currentBalance; }
+    public double getCreditLimit() { return getCreditLimitMoney().toDouble(); }
+    public double getCurrentBalance() { return getCurrentBalanceMoney().toDouble(); }
     public LocalDate getExpiryDate() { return expiryDate; }
-    public double getAvailableCredit() { return creditLimit - currentBalance; }
+    public double getAvailableCredit() { return getAvailableCreditMoney().toDouble(); }
+    public Money getCreditLimitMoney() { return Money.ofMinorUnits(creditLimit); }
+    public Money getCurrentBalanceMoney() { return Money.ofMinorUnits(currentBalance.get()); }
+    public Money getAvailableCreditMoney() { return Money.ofMinorUnits(creditLimit - currentBalance.get()); }
 
     // Сеттеры
     public void setOwnerName(String ownerName) {
         this.ownerName = Objects.requireNonNull(ownerName, "Имя владельца не может быть null");
     }
-    public void setCreditLimit(double creditLimit) { this.creditLimit = creditLimit; }
-    public void setCurrentBalance(double currentBalance) { this.currentBalance = currentBalance; }
+    // Лимит меняется редко, поэтому под монитором: изменение считается от точного прежнего значения
+    public synchronized void setCreditLimit(double creditLimit) {
+        long previous = this.creditLimit;
+        this.creditLimit = Money.of(creditLimit).getMinorUnits();
+        changed(0, this.creditLimit - previous);
+    }
+    public void setCurrentBalance(double currentBalance) {
+        long minorUnits = Money.of(currentBalance).getMinorUnits();
+        long previous = this.currentBalance.getAndSet(minorUnits);
+        changed(minorUnits - previous, 0);
+    }
+    public void setChangeListener(ChangeListener changeListener) { this.changeListener = changeListener; }
     public void setExpiryDate(LocalDate expiryDate) {
         this.expiryDate = Objects.requireNonNull(expiryDate, "Срок действия не может быть null");
     }
 
     public void deposit(double amount) {
-        if (amount <= 0) {
+        deposit(Money.of(amount));
+    }
+
+    // Уменьшает задолженность, но не ниже нуля; возвращает, на сколько она уменьшилась
+    public Money deposit(Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Сумма пополнения должна быть положительной");
         }
-        currentBalance = Math.max(0, currentBalance - amount); // Уменьшаем задолженность
+        long minorUnits = amount.getMinorUnits();
+        long previous = currentBalance.getAndUpdate(balance -> Math.max(0, balance - minorUnits));
+        long repaid = Math.max(0, Math.min(previous, minorUnits));
+        changed(-repaid, 0);
+        return Money.ofMinorUnits(repaid);
     }
 
-    public void withdraw(double amount) {
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Сумма снятия должна быть положительной");
+    // Увеличивает задолженность без проверки лимита - для отмены уже выполненного пополнения
+    public void charge(Money amount) {
+        if (amount.isNegative()) {
+            throw new IllegalArgumentException("Сумма не может быть отрицательной");
+        }
+        currentBalance.addAndGet(amount.getMinorUnits());
+        changed(amount.getMinorUnits(), 0);
+    }
+
+    // Уменьшает задолженность ровно на сумму уже выполненного списания - для его отмены
+    public void cancelWithdrawal(Money amount) {
+        if (amount.isNegative()) {
+            throw new IllegalArgumentException("Сумма не может быть отрицательной");
         }
-        if (amount > getAvailableCredit()) {
+        currentBalance.addAndGet(-amount.getMinorUnits());
+        changed(-amount.getMinorUnits(), 0);
+    }
+
+    public void withdraw(double amount) {
+        if (!tryWithdraw(Money.of(amount))) {
             String message = String.format(
                     "Недостаточно кредита!\n" +
                             "Попытка снять: %.2f ₽\n" +
                             "Доступно: %.2f ₽\n" +
                             "Лимит: %.2f ₽\n" +
                             "Текущая задолженность: %.2f ₽",
-                    amount, getAvailableCredit(), creditLimit, currentBalance);
+                    amount, getAvailableCredit(), getCreditLimit(), getCurrentBalance());
             throw new IllegalArgumentException(message);
         }
-        currentBalance += amount;
+    }
+
+    // Списывает сумму, если она укладывается в доступный кредит; false - если не хватает
+    public boolean tryWithdraw(Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Сумма снятия должна быть положительной");
+        }
+        long minorUnits = amount.getMinorUnits();
+        while (true) {
+            long balance = currentBalance.get();
+            if (minorUnits > creditLimit - balance) {
+                return false;
+            }
+            if (currentBalance.compareAndSet(balance, balance + minorUnits)) {
+                changed(minorUnits, 0);
+                return true;
+            }
+        }
+    }
+
+    private void changed(long balanceDelta, long limitDelta) {
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onCardChanged(this, balanceDelta, limitDelta);
+        }
     }
 
     @Override
@@ -10,19 +10,26 @@ public class Expense extends FinancialOperation {
 
     public Expense(String id, String name, double amount, LocalDate date,
                    Category category, ExpenseType expenseType) {
-        super(id, name, Math.abs(amount) * -1, date, category);
+        super(id, name, Money.of(amount).abs().negate(), date, category);
         this.expenseType = Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
     }
 
     public Expense(String id, String name, double amount, LocalDate date,
                    String description, Category category, ExpenseType expenseType) {
-        super(id, name, Math.abs(amount) * -1, date, description, category, null);
+        super(id, name, Money.of(amount).abs().negate(), date, description, category, null);
         this.expenseType = Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
     }
 
     public Expense(String id, String name, double amount, LocalDate date,
                    String description, Category category, ExpenseType expenseType, String creditCardId) {
-        super(id, name, Math.abs(amount) * -1, date, description, category, creditCardId);
+        super(id, name, Money.of(amount).abs().negate(), date, description, category, creditCardId);
+        this.expenseType = Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
+    }
+
+    public Expense(String id, String name, Money amount, LocalDate date,
+                   String description, Category category, ExpenseType expenseType, String creditCardId) {
+        super(id, name, Objects.requireNonNull(amount, "Сумма не может быть null").abs().negate(),
+                date, description, category, creditCardId);
         this.expenseType = Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
     }
 
@@ -33,18 +40,26 @@ public class Expense extends FinancialOperation {
 
     @Override
     public boolean isValid() {
-        return getAmount() < 0 &&
+        return getMoney().isNegative() &&
                 !getName().trim().isEmpty() &&
                 getCategory() != null;
     }
 
+    @Override
+    public Expense copy() {
+        Expense copy = new Expense(getId(), getName(), getMoney(), getDate(), getDescription(),
+                getCategory(), expenseType, getCreditCardId());
+        copy.setVersion(getVersion());
+        return copy;
+    }
+
     public ExpenseType getExpenseType() { return expenseType; }
     public void setExpenseType(ExpenseType expenseType) {
         this.expenseType = Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
     }
 
     public double getExpenseAmount() {
-        return Math.abs(getAmount());
+        return getMoney().abs().toDouble();
     }
 
     @Override
@@ -6,21 +6,24 @@ import java.util.Objects;
 public abstract class FinancialOperation {
     private String id;
     private String name;
-    private double amount;
+    private Money amount;
     private LocalDate date;
     private String description;
     private Category category;
     private String creditCardId; // ID привязанной кредитной карты (может быть null)
+    // Версия назначается репозиторием: 1 при добавлении, +1 при каждом обновлении.
+    // Не сохраняется в файлы - нужна только для проверки конкурентных изменений
+    private transient volatile long version;
 
-    public FinancialOperation(String id, String name, double amount, LocalDate date, Category category) {
+    public FinancialOperation(String id, String name, Money amount, LocalDate date, Category category) {
         this(id, name, amount, date, "", category, null);
     }
 
-    public FinancialOperation(String id, String name, double amount, LocalDate date,
+    public FinancialOperation(String id, String name, Money amount, LocalDate date,
                               String description, Category category, String creditCardId) {
         this.id = Objects.requireNonNull(id, "ID не может быть null");
         this.name = Objects.requireNonNull(name, "Название не может быть null");
-        this.amount = amount;
+        this.amount = Objects.requireNonNull(amount, "Сумма не может быть null");
         this.date = Objects.requireNonNull(date, "Дата не может быть null");
         this.description = description != null ? description : "";
         this.category = Objects.requireNonNull(category, "Категория не может быть null");
@@ -31,14 +34,19 @@ public abstract class FinancialOperation {
     public String getCreditCardId() { return creditCardId; }
     public void setCreditCardId(String creditCardId) { this.creditCardId = creditCardId; }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     public boolean hasCreditCard() { return creditCardId != null && !creditCardId.trim().isEmpty(); }
 
     // Остальные методы без изменений
     public abstract String getOperationType();
     public abstract boolean isValid();
+    // Независимая копия вместе с версией
+    public abstract FinancialOperation copy();
 
     public double getAbsoluteAmount() {
-        return Math.abs(amount);
+        return amount.abs().toDouble();
     }
 
     public boolean isInDateRange(LocalDate startDate, LocalDate endDate) {
@@ -48,8 +56,10 @@ public abstract class FinancialOperation {
     public String getId() { return id; }
     public String getName() { return name; }
     public void setName(String name) { this.name = Objects.requireNonNull(name, "Название не может быть null"); }
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public double getAmount() { return amount.toDouble(); }
+    public void setAmount(double amount) { this.amount = Money.of(amount); }
+    public Money getMoney() { return amount; }
+    public void setMoney(Money amount) { this.amount = Objects.requireNonNull(amount, "Сумма не может быть null"); }
     public LocalDate getDate() { return date; }
     public void setDate(LocalDate date) { this.date = Objects.requireNonNull(date, "Дата не может быть null"); }
     public String getDescription() { return description; }
@@ -10,19 +10,26 @@ public class Income extends FinancialOperation {
 
     public Income(String id, String name, double amount, LocalDate date,
                   Category category, IncomeSource incomeSource) {
-        super(id, name, Math.abs(amount), date, category);
+        super(id, name, Money.of(amount).abs(), date, category);
         this.incomeSource = Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
     }
 
     public Income(String id, String name, double amount, LocalDate date,
                   String description, Category category, IncomeSource incomeSource) {
-        super(id, name, Math.abs(amount), date, description, category, null);
+        super(id, name, Money.of(amount).abs(), date, description, category, null);
         this.incomeSource = Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
     }
 
     public Income(String id, String name, double amount, LocalDate date,
                   String description, Category category, IncomeSource incomeSource, String creditCardId) {
-        super(id, name, Math.abs(amount), date, description, category, creditCardId);
+        super(id, name, Money.of(amount).abs(), date, description, category, creditCardId);
+        this.incomeSource = Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
+    }
+
+    public Income(String id, String name, Money amount, LocalDate date,
+                  String description, Category category, IncomeSource incomeSource, String creditCardId) {
+        super(id, name, Objects.requireNonNull(amount, "Сумма не может быть null").abs(),
+                date, description, category, creditCardId);
         this.incomeSource = Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
     }
 
@@ -33,11 +40,19 @@ public class Income extends FinancialOperation {
 
     @Override
     public boolean isValid() {
-        return getAmount() > 0 &&
+        return getMoney().isPositive() &&
                 !getName().trim().isEmpty() &&
                 getCategory() != null;
     }
 
+    @Override
+    public Income copy() {
+        Income copy = new Income(getId(), getName(), getMoney(), getDate(), getDescription(),
+                getCategory(), incomeSource, getCreditCardId());
+        copy.setVersion(getVersion());
+        return copy;
+    }
+
     public IncomeSource getIncomeSource() { return incomeSource; }
     public void setIncomeSource(IncomeSource incomeSource) {
         this.incomeSource = Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
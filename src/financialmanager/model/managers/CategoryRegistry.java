@@ -0,0 +1,90 @@
+package financialmanager.model.managers;
+
+import financialmanager.model.entities.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Общий реестр категорий: на каждый id приходится один экземпляр Category,
+// на который ссылаются все операции. Переименование или смена цвета
+// категории сразу видны во всех операциях.
+public class CategoryRegistry {
+    private static final Map<String, Category> categories = new ConcurrentHashMap<>();
+    private static final List<Category> registrationOrder = new CopyOnWriteArrayList<>();
+    private static final List<CategoryChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public interface CategoryChangeListener {
+        void onCategoriesChanged();
+    }
+
+    private CategoryRegistry() {
+    }
+
+    public static void addListener(CategoryChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(CategoryChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void notifyListeners() {
+        for (CategoryChangeListener listener : listeners) {
+            listener.onCategoriesChanged();
+        }
+    }
+
+    // Возвращает уже зарегистрированную категорию с тем же id или регистрирует переданную
+    public static Category intern(Category category) {
+        Objects.requireNonNull(category, "Категория не может быть null");
+
+        Category existing = categories.putIfAbsent(category.getId(), category);
+        if (existing != null) {
+            return existing;
+        }
+        registrationOrder.add(category);
+        notifyListeners();
+        return category;
+    }
+
+    public static Category intern(String id, String name, String description, String colorCode) {
+        Objects.requireNonNull(id, "ID не может быть null");
+
+        Category existing = categories.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        return intern(new Category(id, name, description, colorCode));
+    }
+
+    public static Optional<Category> findById(String id) {
+        Objects.requireNonNull(id, "ID не может быть null");
+
+        return Optional.ofNullable(categories.get(id));
+    }
+
+    // Категории в порядке регистрации
+    public static List<Category> getAll() {
+        return new ArrayList<>(registrationOrder);
+    }
+
+    public static void rename(String id, String name) {
+        getExisting(id).setName(name);
+        notifyListeners();
+    }
+
+    public static void recolor(String id, String colorCode) {
+        getExisting(id).setColorCode(colorCode);
+        notifyListeners();
+    }
+
+    private static Category getExisting(String id) {
+        return findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Категория с ID " + id + " не найдена"));
+    }
+}
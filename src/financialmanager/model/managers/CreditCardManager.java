@@ -1,92 +1,163 @@
 package financialmanager.model.managers;
 
 import financialmanager.model.entities.CreditCard;
-import java.util.ArrayList;
+import financialmanager.model.entities.Money;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Потокобезопасное хранилище карт. Изменения идут под монитором менеджера, чтение - без
+// блокировок: поиск по ID через ConcurrentHashMap, список карт - неизменяемый снимок в
+// порядке добавления, который пересобирается при первом чтении после изменения состава.
+// Итоги ведутся в копейках: при добавлении и удалении карты - на ее значения, а при изменении
+// баланса или лимита - на разницу, которую сообщает сама карта после своего CAS.
 public class CreditCardManager {
-    private final List<CreditCard> creditCards = new ArrayList<>();
-    private final List<CardChangeListener> listeners = new ArrayList<>();
+    private final Map<String, CreditCard> cardsById = new ConcurrentHashMap<>();
+    // Порядок добавления; меняется только под монитором
+    private final Map<String, CreditCard> orderedCards = new LinkedHashMap<>();
+    private final List<CardChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<CreditCard> snapshot = List.of();
+    private final LongAdder totalDebt = new LongAdder();
+    private final LongAdder totalCreditLimit = new LongAdder();
+    // Подписка на карты: учитывает изменения, только пока карта состоит в менеджере
+    private final CreditCard.ChangeListener cardListener = (card, balanceDelta, limitDelta) -> {
+        if (cardsById.get(card.getId()) == card) {
+            totalDebt.add(balanceDelta);
+            totalCreditLimit.add(limitDelta);
+            notifyListeners();
+        }
+    };
 
     public interface CardChangeListener {
         void onCardsChanged(List<CreditCard> cards);
     }
 
     public void addListener(CardChangeListener listener) {
-        listeners.add(listener);
+        listeners.add(Objects.requireNonNull(listener, "Слушатель не может быть null"));
     }
 
     public void removeListener(CardChangeListener listener) {
         listeners.remove(listener);
     }
 
+    // Вызывается вне монитора, чтобы слушатель мог обращаться к менеджеру из других потоков
     private void notifyListeners() {
-        List<CreditCard> copy = new ArrayList<>(creditCards);
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<CreditCard> cards = getAllCards();
         for (CardChangeListener listener : listeners) {
-            listener.onCardsChanged(copy);
+            listener.onCardsChanged(cards);
         }
     }
 
     public void addCard(CreditCard card) {
-        creditCards.add(card);
+        Objects.requireNonNull(card, "Карта не может быть null");
+        synchronized (this) {
+            if (cardsById.containsKey(card.getId())) {
+                throw new IllegalArgumentException("Карта с ID '" + card.getId() + "' уже существует");
+            }
+            orderedCards.put(card.getId(), card);
+            cardsById.put(card.getId(), card);
+            card.setChangeListener(cardListener);
+            account(card, 1);
+            snapshot = null;
+        }
         notifyListeners();
     }
 
     public void removeCard(CreditCard card) {
-        creditCards.remove(card);
-        notifyListeners();
+        Objects.requireNonNull(card, "Карта не может быть null");
+        removeCardById(card.getId());
     }
 
     public void removeCardById(String id) {
-        creditCards.removeIf(card -> card.getId().equals(id));
+        synchronized (this) {
+            CreditCard removed = orderedCards.remove(id);
+            if (removed == null) {
+                return;
+            }
+            removed.setChangeListener(null);
+            cardsById.remove(id);
+            account(removed, -1);
+            snapshot = null;
+        }
         notifyListeners();
     }
 
     public void updateCard(CreditCard card) {
-        for (int i = 0; i < creditCards.size(); i++) {
-            if (creditCards.get(i).getId().equals(card.getId())) {
-                creditCards.set(i, card);
-                break;
+        Objects.requireNonNull(card, "Карта не может быть null");
+        synchronized (this) {
+            CreditCard previous = orderedCards.get(card.getId());
+            if (previous == null) {
+                return;
+            }
+            if (previous != card) {
+                // replace сохраняет позицию карты в порядке добавления
+                previous.setChangeListener(null);
+                orderedCards.replace(card.getId(), card);
+                cardsById.put(card.getId(), card);
+                card.setChangeListener(cardListener);
+                account(previous, -1);
+                account(card, 1);
+                snapshot = null;
             }
         }
         notifyListeners();
     }
 
     public List<CreditCard> getAllCards() {
-        return new ArrayList<>(creditCards);
+        List<CreditCard> cards = snapshot;
+        if (cards == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = List.copyOf(orderedCards.values());
+                }
+                cards = snapshot;
+            }
+        }
+        return cards;
     }
 
     public CreditCard getCardById(String id) {
-        return creditCards.stream()
-                .filter(card -> card.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return id != null ? cardsById.get(id) : null;
     }
 
     public double getTotalDebt() {
-        return creditCards.stream()
-                .mapToDouble(CreditCard::getCurrentBalance)
-                .sum();
+        return Money.ofMinorUnits(totalDebt.sum()).toDouble();
     }
 
     public double getTotalAvailableCredit() {
-        return creditCards.stream()
-                .mapToDouble(CreditCard::getAvailableCredit)
-                .sum();
+        return Money.ofMinorUnits(totalCreditLimit.sum() - totalDebt.sum()).toDouble();
     }
 
     public double getTotalCreditLimit() {
-        return creditCards.stream()
-                .mapToDouble(CreditCard::getCreditLimit)
-                .sum();
+        return Money.ofMinorUnits(totalCreditLimit.sum()).toDouble();
     }
 
     public void clear() {
-        creditCards.clear();
+        synchronized (this) {
+            orderedCards.values().forEach(card -> card.setChangeListener(null));
+            orderedCards.clear();
+            cardsById.clear();
+            totalDebt.reset();
+            totalCreditLimit.reset();
+            snapshot = List.of();
+        }
         notifyListeners();
     }
 
     public int size() {
-        return creditCards.size();
+        return cardsById.size();
+    }
+
+    // sign = 1 - карта входит в итоги, -1 - выходит из них
+    private void account(CreditCard card, int sign) {
+        totalDebt.add(sign * card.getCurrentBalanceMoney().getMinorUnits());
+        totalCreditLimit.add(sign * card.getCreditLimitMoney().getMinorUnits());
     }
-}
\ No newline at end of file
+}
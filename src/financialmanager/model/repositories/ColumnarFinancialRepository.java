@@ -0,0 +1,517 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.Category;
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.entities.Money;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+// Хранилище операций в виде параллельных примитивных колонок.
+// Сущности создаются только при чтении строк, агрегаты считаются циклами по массивам.
+// Названия, категории и карты хранятся словарями; ID и описания остаются строками на каждую
+// строку, поэтому по памяти выигрывают в основном числовые колонки.
+public abstract class ColumnarFinancialRepository<T extends FinancialOperation> implements FinancialRepository<T> {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_CARD = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> rows = new HashMap<>();
+    // Версии строк, которые обновлялись; у остальных версия 1
+    private final Map<String, Long> versions = new HashMap<>();
+
+    // Колонки
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];          // номер в словаре названий
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];      // в копейках
+    private int[] days = new int[INITIAL_CAPACITY];           // epoch day
+    private int[] categories = new int[INITIAL_CAPACITY];     // номер в словаре категорий
+    private int[] cards = new int[INITIAL_CAPACITY];          // номер в словаре карт или NO_CARD
+    private byte[] types = new byte[INITIAL_CAPACITY];        // ordinal типа расхода / источника дохода
+    private int size;
+    // Сумма всех операций в копейках, поддерживается при каждом изменении
+    private long totalAmount;
+
+    // Словари названий, категорий и карт; не сжимаются при удалении операций
+    private final List<String> nameDictionary = new ArrayList<>();
+    private final Map<String, Integer> nameOrdinals = new HashMap<>();
+    private final List<Category> categoryDictionary = new ArrayList<>();
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final List<String> cardDictionary = new ArrayList<>();
+    private final Map<String, Integer> cardOrdinals = new HashMap<>();
+
+    protected abstract byte typeOf(T operation);
+
+    protected abstract T materialize(String id, String name, Money amount, LocalDate date,
+                                     String description, Category category, byte type, String creditCardId);
+
+    @Override
+    public void add(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        lock.writeLock().lock();
+        try {
+            if (rows.containsKey(operation.getId())) {
+                throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' уже существует");
+            }
+            ensureCapacity(size + 1);
+            int row = size;
+            write(row, operation);
+            size++;
+            rows.put(operation.getId(), row);
+            totalAmount += amounts[row];
+            operation.setVersion(1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        remove(id, -1);
+    }
+
+    @Override
+    public void delete(String id, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
+        }
+        remove(id, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void remove(String id, long expectedVersion) {
+        Objects.requireNonNull(id, "ID не может быть null");
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(id);
+            if (row == null) {
+                throw new IllegalArgumentException("Операция с ID '" + id + "' не найдена");
+            }
+            long version = versions.getOrDefault(id, 1L);
+            if (expectedVersion >= 0 && version != expectedVersion) {
+                throw new VersionConflictException(id, expectedVersion, version);
+            }
+            rows.remove(id);
+            versions.remove(id);
+            totalAmount -= amounts[row];
+            // Переносим последнюю строку на место удаленной
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                names[row] = names[last];
+                descriptions[row] = descriptions[last];
+                amounts[row] = amounts[last];
+                days[row] = days[last];
+                categories[row] = categories[last];
+                cards[row] = cards[last];
+                types[row] = types[last];
+                rows.put(ids[row], row);
+            }
+            ids[last] = null;
+            descriptions[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(T operation) {
+        replace(operation, -1);
+    }
+
+    @Override
+    public void update(T operation, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
+        }
+        replace(operation, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void replace(T operation, long expectedVersion) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(operation.getId());
+            if (row == null) {
+                throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' не найдена");
+            }
+            long version = versions.getOrDefault(operation.getId(), 1L);
+            if (expectedVersion >= 0 && version != expectedVersion) {
+                throw new VersionConflictException(operation.getId(), expectedVersion, version);
+            }
+            long previous = amounts[row];
+            write(row, operation);
+            totalAmount += amounts[row] - previous;
+            versions.put(operation.getId(), version + 1);
+            operation.setVersion(version + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void restore(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(operation.getId());
+            if (row == null) {
+                ensureCapacity(size + 1);
+                write(size, operation);
+                rows.put(operation.getId(), size);
+                totalAmount += amounts[size++];
+            } else {
+                long previous = amounts[row];
+                write(row, operation);
+                totalAmount += amounts[row] - previous;
+            }
+            setVersion(operation.getId(), operation.getVersion());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Пачка проверяется и применяется под одной блокировкой записи
+    @Override
+    public void addAll(Collection<T> operations) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + operations.size());
+            FinancialRepository.super.addAll(operations);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<T> operations) {
+        lock.writeLock().lock();
+        try {
+            FinancialRepository.super.updateAll(operations);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            FinancialRepository.super.deleteAll(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        lock.readLock().lock();
+        try {
+            Integer row = rows.get(id);
+            return row != null ? Optional.of(materialize(row)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findAll() {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                result.add(materialize(row));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findByDateRange(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                int day = days[row];
+                if (day >= from && day <= to) {
+                    keys[count++] = sortKey(row);
+                }
+            }
+            return materializeSorted(keys, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findByCategory(String categoryId) {
+        Objects.requireNonNull(categoryId, "ID категории не может быть null");
+
+        lock.readLock().lock();
+        try {
+            Integer ordinal = categoryOrdinals.get(categoryId);
+            return ordinal != null ? findByColumn(categories, ordinal) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findByCreditCardId(String creditCardId) {
+        Objects.requireNonNull(creditCardId, "ID карты не может быть null");
+
+        lock.readLock().lock();
+        try {
+            Integer ordinal = cardOrdinals.get(creditCardId);
+            return ordinal != null ? findByColumn(cards, ordinal) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String id) {
+        lock.readLock().lock();
+        try {
+            return rows.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected List<T> findByType(byte type) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                if (types[row] == type) {
+                    keys[count++] = sortKey(row);
+                }
+            }
+            return materializeSorted(keys, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сумма всех операций в копейках
+    protected long sumAmounts() {
+        lock.readLock().lock();
+        try {
+            return totalAmount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сумма модулей операций за период в копейках
+    protected long sumAbsoluteAmounts(LocalDate startDate, LocalDate endDate) {
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (int row = 0; row < size; row++) {
+                int day = days[row];
+                if (day >= from && day <= to) {
+                    sum += Math.abs(amounts[row]);
+                }
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Суммы модулей за период по категориям: ключ - название категории
+    protected Map<String, Money> sumAbsoluteAmountsByCategory(LocalDate startDate, LocalDate endDate) {
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            long[] totals = new long[categoryDictionary.size()];
+            boolean[] present = new boolean[totals.length];
+            for (int row = 0; row < size; row++) {
+                int day = days[row];
+                if (day >= from && day <= to) {
+                    totals[categories[row]] += Math.abs(amounts[row]);
+                    present[categories[row]] = true;
+                }
+            }
+
+            Map<String, Money> result = new HashMap<>();
+            for (int ordinal = 0; ordinal < totals.length; ordinal++) {
+                if (present[ordinal]) {
+                    result.merge(categoryDictionary.get(ordinal).getName(), Money.ofMinorUnits(totals[ordinal]), Money::plus);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Суммы операций за период по типу; ключ - название типа по его ordinal
+    protected Map<String, Money> sumAmountsByType(LocalDate startDate, LocalDate endDate,
+                                                   int typeCount, IntFunction<String> typeName) {
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            long[] totals = new long[typeCount];
+            boolean[] present = new boolean[typeCount];
+            for (int row = 0; row < size; row++) {
+                int day = days[row];
+                if (day >= from && day <= to) {
+                    totals[types[row]] += amounts[row];
+                    present[types[row]] = true;
+                }
+            }
+
+            Map<String, Money> result = new HashMap<>();
+            for (int type = 0; type < typeCount; type++) {
+                if (present[type]) {
+                    result.merge(typeName.apply(type), Money.ofMinorUnits(totals[type]), Money::plus);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<T> findByColumn(int[] column, int value) {
+        int count = 0;
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            if (column[row] == value) {
+                keys[count++] = sortKey(row);
+            }
+        }
+        return materializeSorted(keys, count);
+    }
+
+    // Ключ сортировки: дата по убыванию в старших битах, номер строки в младших
+    private long sortKey(int row) {
+        return ((long) -days[row] << 32) | row;
+    }
+
+    private List<T> materializeSorted(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(materialize((int) keys[i]));
+        }
+        return result;
+    }
+
+    private T materialize(int row) {
+        T operation = materialize(
+                ids[row],
+                nameDictionary.get(names[row]),
+                Money.ofMinorUnits(amounts[row]),
+                LocalDate.ofEpochDay(days[row]),
+                descriptions[row],
+                categoryDictionary.get(categories[row]),
+                types[row],
+                cards[row] != NO_CARD ? cardDictionary.get(cards[row]) : null
+        );
+        operation.setVersion(versions.getOrDefault(ids[row], 1L));
+        return operation;
+    }
+
+    // Все значения вычисляются до записи, чтобы ошибка не оставила строку записанной наполовину
+    private void write(int row, T operation) {
+        int day = Math.toIntExact(operation.getDate().toEpochDay());
+        byte type = typeOf(operation);
+        int category = categoryOrdinal(operation.getCategory());
+        int card = operation.hasCreditCard() ? cardOrdinal(operation.getCreditCardId()) : NO_CARD;
+        ids[row] = operation.getId();
+        names[row] = nameOrdinal(operation.getName());
+        descriptions[row] = operation.getDescription();
+        amounts[row] = operation.getMoney().getMinorUnits();
+        days[row] = day;
+        categories[row] = category;
+        cards[row] = card;
+        types[row] = type;
+    }
+
+    private int nameOrdinal(String name) {
+        return nameOrdinals.computeIfAbsent(name, key -> {
+            nameDictionary.add(key);
+            return nameDictionary.size() - 1;
+        });
+    }
+
+    private void setVersion(String id, long version) {
+        if (version > 1) {
+            versions.put(id, version);
+        } else {
+            versions.remove(id);
+        }
+    }
+
+    private int categoryOrdinal(Category category) {
+        Integer ordinal = categoryOrdinals.get(category.getId());
+        if (ordinal == null) {
+            ordinal = categoryDictionary.size();
+            categoryDictionary.add(category);
+            categoryOrdinals.put(category.getId(), ordinal);
+        } else {
+            // Храним последнюю версию категории (название и цвет могли измениться)
+            categoryDictionary.set(ordinal, category);
+        }
+        return ordinal;
+    }
+
+    private int cardOrdinal(String creditCardId) {
+        return cardOrdinals.computeIfAbsent(creditCardId, id -> {
+            cardDictionary.add(id);
+            return cardDictionary.size() - 1;
+        });
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        days = Arrays.copyOf(days, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        cards = Arrays.copyOf(cards, capacity);
+        types = Arrays.copyOf(types, capacity);
+    }
+
+    private static int toDay(LocalDate date) {
+        long day = date.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+}
@@ -0,0 +1,119 @@
+package financialmanager.model.repositories;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Дерево Фенвика по дням (epoch day): сумма за любой период за O(log дней).
+// Массивы покрывают только дни из окна [MIN_DAY, MAX_DAY], поэтому случайная дата вроде
+// 01.01.0001 не раздувает их на тысячелетия; такие дни хранятся отдельно в outliers.
+class DailyTotalsIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long MIN_DAY = LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final long MAX_DAY = LocalDate.of(2199, 12, 31).toEpochDay();
+
+    private long firstDay;                 // epoch day, которому соответствует позиция 0
+    private long[] daily = new long[0];    // суммы по дням
+    private long[] tree = new long[1];     // дерево Фенвика, индексация с 1
+    // Суммы по дням вне окна
+    private final NavigableMap<Long, Long> outliers = new TreeMap<>();
+
+    public synchronized void add(LocalDate date, long amount) {
+        long day = date.toEpochDay();
+        if (day < MIN_DAY || day > MAX_DAY) {
+            outliers.merge(day, amount, (sum, delta) -> sum + delta == 0 ? null : sum + delta);
+            return;
+        }
+        ensureCapacity(day);
+
+        int position = (int) (day - firstDay);
+        daily[position] += amount;
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += amount;
+        }
+    }
+
+    // Расширяет массивы под дату заранее, чтобы add только менял суммы
+    public synchronized void reserve(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day >= MIN_DAY && day <= MAX_DAY) {
+            ensureCapacity(day);
+        }
+    }
+
+    public synchronized long sum(LocalDate startDate, LocalDate endDate) {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        long sum = 0;
+        if (!outliers.isEmpty() && start <= end) {
+            for (long amount : outliers.subMap(start, true, end, true).values()) {
+                sum += amount;
+            }
+        }
+        if (daily.length == 0) {
+            return sum;
+        }
+        long from = Math.max(start, firstDay);
+        long to = Math.min(end, firstDay + daily.length - 1);
+        if (from > to) {
+            return sum;
+        }
+        return sum + prefixSum((int) (to - firstDay) + 1) - prefixSum((int) (from - firstDay));
+    }
+
+    public synchronized void clear() {
+        daily = new long[0];
+        tree = new long[1];
+        outliers.clear();
+    }
+
+    private long prefixSum(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void ensureCapacity(long day) {
+        if (daily.length == 0) {
+            firstDay = day - INITIAL_CAPACITY / 2;
+            daily = new long[INITIAL_CAPACITY];
+            tree = new long[INITIAL_CAPACITY + 1];
+            return;
+        }
+
+        long lastDay = firstDay + daily.length - 1;
+        if (day >= firstDay && day <= lastDay) {
+            return;
+        }
+
+        // Все дни лежат в окне, поэтому размах не больше нескольких сотен лет
+        long span = Math.max(lastDay, day) - Math.min(firstDay, day) + 1;
+        int capacity = daily.length;
+        while (capacity < span) {
+            capacity *= 2;
+        }
+
+        // Расширяемся в сторону новой даты
+        long newFirstDay = day < firstDay ? lastDay - capacity + 1 : firstDay;
+        long[] newDaily = new long[capacity];
+        System.arraycopy(daily, 0, newDaily, (int) (firstDay - newFirstDay), daily.length);
+        rebuild(newFirstDay, newDaily);
+    }
+
+    // Построение дерева за O(n): каждый узел переносит свою сумму родителю
+    private void rebuild(long newFirstDay, long[] newDaily) {
+        long[] newTree = new long[newDaily.length + 1];
+        for (int i = 1; i < newTree.length; i++) {
+            newTree[i] += newDaily[i - 1];
+            int parent = i + (i & -i);
+            if (parent < newTree.length) {
+                newTree[parent] += newTree[i];
+            }
+        }
+        firstDay = newFirstDay;
+        daily = newDaily;
+        tree = newTree;
+    }
+}
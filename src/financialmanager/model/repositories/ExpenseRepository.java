@@ -1,6 +1,7 @@
 package financialmanager.model.repositories;
 
 import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Money;
 import financialmanager.model.enums.ExpenseType;
 
 import java.time.LocalDate;
@@ -9,7 +10,7 @@ import java.util.Map;
 
 public interface ExpenseRepository extends FinancialRepository<Expense> {
     List<Expense> findByExpenseType(ExpenseType expenseType);
-    Map<String, Double> getAmountsByCategory(LocalDate startDate, LocalDate endDate);
-    double getTotalExpenses(LocalDate startDate, LocalDate endDate);
-    double getTotalBalance();
+    Map<String, Money> getAmountsByCategory(LocalDate startDate, LocalDate endDate);
+    Money getTotalExpenses(LocalDate startDate, LocalDate endDate);
+    Money getTotalBalance();
 }
\ No newline at end of file
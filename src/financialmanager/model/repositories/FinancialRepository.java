@@ -3,16 +3,106 @@ package financialmanager.model.repositories;
 import financialmanager.model.entities.FinancialOperation;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 public interface FinancialRepository<T extends FinancialOperation> {
     void add(T operation);
     void delete(String id);
+    // Удаляет, только если сохраненная версия равна ожидаемой, иначе VersionConflictException
+    void delete(String id, long expectedVersion);
     void update(T operation);
+    // Обновляет, только если сохраненная версия равна ожидаемой, иначе VersionConflictException
+    void update(T operation, long expectedVersion);
+    // Возвращает операцию в прежнее состояние вместе с ее версией (откат пачек): добавляет
+    // или заменяет сохраненную без проверок и без увеличения версии
+    void restore(T operation);
     Optional<T> findById(String id);
     List<T> findAll();
     List<T> findByDateRange(LocalDate startDate, LocalDate endDate);
     List<T> findByCategory(String categoryId);
+    List<T> findByCreditCardId(String creditCardId);
     boolean exists(String id);
-}
\ No newline at end of file
+    int count();
+
+    // Пакетные изменения: пачка проверяется целиком до применения, при ошибке ничего не меняется.
+    // Реализации применяют пачку под одной блокировкой записи; если одиночное изменение из другого
+    // потока все же помешало посреди пачки, уже примененная часть откатывается к копиям,
+    // снятым до применения.
+    default void addAll(Collection<T> operations) {
+        Set<String> ids = new HashSet<>();
+        for (T operation : operations) {
+            Objects.requireNonNull(operation, "Операция не может быть null");
+            if (!ids.add(operation.getId()) || exists(operation.getId())) {
+                throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' уже существует");
+            }
+        }
+        List<T> added = new ArrayList<>(operations.size());
+        try {
+            for (T operation : operations) {
+                add(operation);
+                added.add(operation);
+            }
+        } catch (RuntimeException e) {
+            for (T operation : added) {
+                delete(operation.getId());
+            }
+            throw e;
+        }
+    }
+
+    default void updateAll(Collection<T> operations) {
+        List<T> previous = new ArrayList<>(operations.size());
+        for (T operation : operations) {
+            Objects.requireNonNull(operation, "Операция не может быть null");
+            previous.add(findById(operation.getId()).map(FinancialRepository::snapshot).orElseThrow(() ->
+                    new IllegalArgumentException("Операция с ID '" + operation.getId() + "' не найдена")));
+        }
+        int applied = 0;
+        try {
+            for (T operation : operations) {
+                update(operation);
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            for (T operation : previous.subList(0, applied)) {
+                restore(operation);
+            }
+            throw e;
+        }
+    }
+
+    default void deleteAll(Collection<String> ids) {
+        Set<String> unique = new HashSet<>();
+        List<T> previous = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Objects.requireNonNull(id, "ID не может быть null");
+            Optional<T> operation = unique.add(id) ? findById(id).map(FinancialRepository::snapshot) : Optional.empty();
+            previous.add(operation.orElseThrow(() ->
+                    new IllegalArgumentException("Операция с ID '" + id + "' не найдена")));
+        }
+        int applied = 0;
+        try {
+            for (String id : ids) {
+                delete(id);
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            for (T operation : previous.subList(0, applied)) {
+                restore(operation);
+            }
+            throw e;
+        }
+    }
+
+    // Хранилища в памяти отдают свои экземпляры, которые вызывающий код может менять
+    @SuppressWarnings("unchecked")
+    private static <T extends FinancialOperation> T snapshot(T operation) {
+        return (T) operation.copy();
+    }
+}
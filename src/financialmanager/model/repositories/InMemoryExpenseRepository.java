@@ -1,10 +1,10 @@
 package financialmanager.model.repositories;
 
 import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Money;
 import financialmanager.model.enums.ExpenseType;
 import java.util.Objects;
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -15,14 +15,13 @@ public class InMemoryExpenseRepository extends InMemoryFinancialRepository<Expen
     public List<Expense> findByExpenseType(ExpenseType expenseType) {
         Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
 
-        return storage.values().stream()
+        return orderedValues().stream()
                 .filter(expense -> expense.getExpenseType() == expenseType)
-                .sorted(Comparator.comparing(Expense::getDate).reversed())
                 .toList();
     }
 
     @Override
-    public Map<String, Double> getAmountsByCategory(LocalDate startDate, LocalDate endDate) {
+    public Map<String, Money> getAmountsByCategory(LocalDate startDate, LocalDate endDate) {
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
@@ -30,25 +29,20 @@ public class InMemoryExpenseRepository extends InMemoryFinancialRepository<Expen
                 .filter(expense -> expense.isInDateRange(startDate, endDate))
                 .collect(Collectors.groupingBy(
                         expense -> expense.getCategory().getName(),
-                        Collectors.summingDouble(Expense::getExpenseAmount)
+                        Collectors.reducing(Money.ZERO, expense -> expense.getMoney().abs(), Money::plus)
                 ));
     }
 
     @Override
-    public double getTotalExpenses(LocalDate startDate, LocalDate endDate) {
+    public Money getTotalExpenses(LocalDate startDate, LocalDate endDate) {
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
-        return storage.values().stream()
-                .filter(expense -> expense.isInDateRange(startDate, endDate))
-                .mapToDouble(Expense::getExpenseAmount)
-                .sum();
+        return getAbsoluteAmount(startDate, endDate);
     }
 
     @Override
-    public double getTotalBalance() {
-        return storage.values().stream()
-                .mapToDouble(Expense::getAmount)
-                .sum();
+    public Money getTotalBalance() {
+        return getTotalAmount();
     }
 }
\ No newline at end of file
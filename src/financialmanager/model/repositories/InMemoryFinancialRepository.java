@@ -1,39 +1,135 @@
 package financialmanager.model.repositories;
 
 import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.entities.Money;
 
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class InMemoryFinancialRepository<T extends FinancialOperation> implements FinancialRepository<T> {
     protected final Map<String, T> storage = new ConcurrentHashMap<>();
 
+    // Индекс по дате: сначала новые операции, внутри одного дня - по ID
+    private final ConcurrentNavigableMap<DateKey, T> dateIndex = new ConcurrentSkipListMap<>();
+    // Индексы по категории и кредитной карте, внутри каждого - тот же порядок, что и по дате
+    private final Map<String, ConcurrentNavigableMap<DateKey, T>> categoryIndex = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentNavigableMap<DateKey, T>> creditCardIndex = new ConcurrentHashMap<>();
+    // Состояние, под которым операция лежит в индексах (сущность могут изменить до вызова update)
+    private final Map<String, IndexEntry> indexedEntries = new ConcurrentHashMap<>();
+    // Сумма всех операций в копейках, поддерживается при каждом изменении
+    private final LongAdder totalAmount = new LongAdder();
+    // Суммы модулей операций по дням для итогов за период
+    private final DailyTotalsIndex dailyTotals = new DailyTotalsIndex();
+
+    // Изменения без общей блокировки: проверка и запись идут внутри compute хранилища, то есть
+    // атомарно для своего ID (вставка - как putIfAbsent), и индексы правятся там же, пока ключ занят.
+    // Все, что может не пройти, проверяется до первого изменения индексов. Операции с разными ID
+    // меняются параллельно.
     @Override
     public void add(T operation) {
         Objects.requireNonNull(operation, "Операция не может быть null");
-        if (exists(operation.getId())) {
-            throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' уже существует");
-        }
-        storage.put(operation.getId(), operation);
+        storage.compute(operation.getId(), (id, current) -> {
+            if (current != null) {
+                throw new IllegalArgumentException("Операция с ID '" + id + "' уже существует");
+            }
+            IndexEntry entry = prepare(operation);
+            operation.setVersion(1);
+            index(operation, entry);
+            return operation;
+        });
     }
 
     @Override
     public void delete(String id) {
-        Objects.requireNonNull(id, "ID не может быть null");
-        if (!storage.containsKey(id)) {
-            throw new IllegalArgumentException("Операция с ID '" + id + "' не найдена");
+        remove(id, -1);
+    }
+
+    @Override
+    public void delete(String id, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
         }
-        storage.remove(id);
+        remove(id, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void remove(String id, long expectedVersion) {
+        Objects.requireNonNull(id, "ID не может быть null");
+        storage.compute(id, (key, current) -> {
+            if (current == null) {
+                throw new IllegalArgumentException("Операция с ID '" + key + "' не найдена");
+            }
+            if (expectedVersion >= 0 && current.getVersion() != expectedVersion) {
+                throw new VersionConflictException(key, expectedVersion, current.getVersion());
+            }
+            unindex(key);
+            return null;
+        });
     }
 
     @Override
     public void update(T operation) {
-        Objects.requireNonNull(operation, "Операция не может быть null");
-        if (!exists(operation.getId())) {
-            throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' не найдена");
+        replace(operation, -1);
+    }
+
+    @Override
+    public void update(T operation, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
         }
-        storage.put(operation.getId(), operation);
+        replace(operation, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void replace(T operation, long expectedVersion) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        storage.compute(operation.getId(), (id, current) -> {
+            if (current == null) {
+                throw new IllegalArgumentException("Операция с ID '" + id + "' не найдена");
+            }
+            long version = current.getVersion();
+            if (expectedVersion >= 0 && version != expectedVersion) {
+                throw new VersionConflictException(id, expectedVersion, version);
+            }
+            IndexEntry entry = prepare(operation);
+            unindex(id);
+            operation.setVersion(version + 1);
+            index(operation, entry);
+            return operation;
+        });
+    }
+
+    @Override
+    public void restore(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        storage.compute(operation.getId(), (id, current) -> {
+            IndexEntry entry = prepare(operation);
+            unindex(id);
+            index(operation, entry);
+            return operation;
+        });
+    }
+
+    // Пачки применяются по одной на мониторе репозитория; одиночные изменения идут параллельно
+    // с ними, и если помешают, примененная часть пачки откатывается. Чтение идет без блокировок
+    // и может застать пачку частично
+    @Override
+    public synchronized void addAll(Collection<T> operations) {
+        FinancialRepository.super.addAll(operations);
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<T> operations) {
+        FinancialRepository.super.updateAll(operations);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<String> ids) {
+        FinancialRepository.super.deleteAll(ids);
     }
 
     @Override
@@ -51,20 +147,30 @@ public abstract class InMemoryFinancialRepository<T extends FinancialOperation>
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
-        return storage.values().stream()
-                .filter(operation -> operation.isInDateRange(startDate, endDate))
-                .sorted(Comparator.comparing(FinancialOperation::getDate).reversed())
-                .toList();
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+
+        DateKey from = new DateKey(endDate, null);
+        NavigableMap<DateKey, T> range = startDate.equals(LocalDate.MIN)
+                ? dateIndex.tailMap(from, true)
+                : dateIndex.subMap(from, true, new DateKey(startDate.minusDays(1), null), true);
+
+        return List.copyOf(range.values());
     }
 
     @Override
     public List<T> findByCategory(String categoryId) {
         Objects.requireNonNull(categoryId, "ID категории не может быть null");
 
-        return storage.values().stream()
-                .filter(operation -> operation.getCategory().getId().equals(categoryId))
-                .sorted(Comparator.comparing(FinancialOperation::getDate).reversed())
-                .toList();
+        return valuesOf(categoryIndex, categoryId);
+    }
+
+    @Override
+    public List<T> findByCreditCardId(String creditCardId) {
+        Objects.requireNonNull(creditCardId, "ID карты не может быть null");
+
+        return valuesOf(creditCardIndex, creditCardId);
     }
 
     @Override
@@ -74,9 +180,92 @@ public abstract class InMemoryFinancialRepository<T extends FinancialOperation>
 
     protected void clear() {
         storage.clear();
+        dateIndex.clear();
+        categoryIndex.clear();
+        creditCardIndex.clear();
+        indexedEntries.clear();
+        totalAmount.reset();
+        dailyTotals.clear();
     }
 
+    @Override
     public int count() {
         return storage.size();
     }
-}
\ No newline at end of file
+
+    // Все операции в порядке индекса по дате (сначала новые)
+    protected Collection<T> orderedValues() {
+        return dateIndex.values();
+    }
+
+    protected Money getTotalAmount() {
+        return Money.ofMinorUnits(totalAmount.sum());
+    }
+
+    // Сумма модулей операций за период (включительно)
+    protected Money getAbsoluteAmount(LocalDate startDate, LocalDate endDate) {
+        return Money.ofMinorUnits(dailyTotals.sum(startDate, endDate));
+    }
+
+    private List<T> valuesOf(Map<String, ConcurrentNavigableMap<DateKey, T>> index, String key) {
+        ConcurrentNavigableMap<DateKey, T> bucket = index.get(key);
+        return bucket != null ? List.copyOf(bucket.values()) : List.of();
+    }
+
+    // Читает поля операции и резервирует ее день в итогах по дням; индексы не меняет
+    private IndexEntry prepare(T operation) {
+        DateKey key = new DateKey(operation.getDate(), operation.getId());
+        String categoryId = operation.getCategory().getId();
+        String creditCardId = operation.hasCreditCard() ? operation.getCreditCardId() : null;
+        dailyTotals.reserve(key.date());
+        return new IndexEntry(key, categoryId, creditCardId, operation.getMoney().getMinorUnits());
+    }
+
+    private void index(T operation, IndexEntry entry) {
+        DateKey key = entry.key();
+        indexedEntries.put(operation.getId(), entry);
+        totalAmount.add(entry.amount());
+        dailyTotals.add(key.date(), Math.abs(entry.amount()));
+        dateIndex.put(key, operation);
+        categoryIndex.computeIfAbsent(entry.categoryId(), id -> new ConcurrentSkipListMap<>()).put(key, operation);
+        if (entry.creditCardId() != null) {
+            creditCardIndex.computeIfAbsent(entry.creditCardId(), id -> new ConcurrentSkipListMap<>()).put(key, operation);
+        }
+    }
+
+    private void unindex(String id) {
+        IndexEntry entry = indexedEntries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        totalAmount.add(-entry.amount());
+        dailyTotals.add(entry.key().date(), -Math.abs(entry.amount()));
+        dateIndex.remove(entry.key());
+        removeFrom(categoryIndex, entry.categoryId(), entry.key());
+        if (entry.creditCardId() != null) {
+            removeFrom(creditCardIndex, entry.creditCardId(), entry.key());
+        }
+    }
+
+    private void removeFrom(Map<String, ConcurrentNavigableMap<DateKey, T>> index, String bucketId, DateKey key) {
+        ConcurrentNavigableMap<DateKey, T> bucket = index.get(bucketId);
+        if (bucket != null) {
+            bucket.remove(key);
+        }
+    }
+
+    private record IndexEntry(DateKey key, String categoryId, String creditCardId, long amount) {
+    }
+
+    // Ключ индекса: дата по убыванию, затем ID; ID = null - граница диапазона перед всеми операциями дня
+    private record DateKey(LocalDate date, String id) implements Comparable<DateKey> {
+        private static final Comparator<DateKey> ORDER = Comparator
+                .comparing(DateKey::date, Comparator.reverseOrder())
+                .thenComparing(DateKey::id, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        @Override
+        public int compareTo(DateKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
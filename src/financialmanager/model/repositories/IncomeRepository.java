@@ -1,6 +1,7 @@
 package financialmanager.model.repositories;
 
 import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
 import financialmanager.model.enums.IncomeSource;
 
 import java.time.LocalDate;
@@ -9,7 +10,7 @@ import java.util.Map;
 
 public interface IncomeRepository extends FinancialRepository<Income> {
     List<Income> findByIncomeSource(IncomeSource incomeSource);
-    Map<String, Double> getAmountsBySource(LocalDate startDate, LocalDate endDate);
-    double getTotalIncomes(LocalDate startDate, LocalDate endDate);
-    double getTotalBalance();
+    Map<String, Money> getAmountsBySource(LocalDate startDate, LocalDate endDate);
+    Money getTotalIncomes(LocalDate startDate, LocalDate endDate);
+    Money getTotalBalance();
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.Category;
+import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Money;
+import financialmanager.model.enums.ExpenseType;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class MappedExpenseRepository extends MappedFinancialRepository<Expense> implements ExpenseRepository {
+    private static final ExpenseType[] TYPES = ExpenseType.values();
+
+    public MappedExpenseRepository(Path basePath) throws IOException {
+        super(basePath);
+    }
+
+    @Override
+    protected byte typeOf(Expense expense) {
+        return (byte) expense.getExpenseType().ordinal();
+    }
+
+    @Override
+    protected Expense materialize(String id, String name, Money amount, LocalDate date,
+                                  String description, Category category, byte type, String creditCardId) {
+        return new Expense(id, name, amount, date, description, category, TYPES[type], creditCardId);
+    }
+
+    @Override
+    public List<Expense> findByExpenseType(ExpenseType expenseType) {
+        Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
+
+        return findByType((byte) expenseType.ordinal());
+    }
+
+    @Override
+    public Map<String, Money> getAmountsByCategory(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return sumAbsoluteAmountsByCategory(startDate, endDate);
+    }
+
+    @Override
+    public Money getTotalExpenses(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return Money.ofMinorUnits(sumAbsoluteAmounts(startDate, endDate));
+    }
+
+    @Override
+    public Money getTotalBalance() {
+        return Money.ofMinorUnits(sumAmounts());
+    }
+}
@@ -0,0 +1,716 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.Category;
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.entities.Money;
+import financialmanager.model.managers.CategoryRegistry;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+// Хранилище операций в отображаемом в память файле записей фиксированной длины (<имя>.dat).
+// Строки (ID, названия, описания, категории, карты) лежат в отдельном файле-куче (<имя>.heap).
+// При открытии читаются только заголовки записей и ID, сущности создаются при чтении.
+// Файлы и есть сохраненные данные: сохранение сводится к flush, без выгрузки в JSON.
+// Изменение пишется в свободную запись, и только потом старая освобождается: после сбоя
+// остается одна из копий целиком. Неизменившиеся строки повторно в кучу не пишутся.
+public abstract class MappedFinancialRepository<T extends FinancialOperation>
+        implements FinancialRepository<T>, AutoCloseable, Flushable {
+    private static final int MAGIC = 0x464D5244; // "FMRD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NO_REF = -1;
+
+    // Формат записи
+    private static final int RECORD_SIZE = 56;
+    private static final int STATE = 0;        // byte: 0 - свободна, 1 - занята
+    private static final int TYPE = 1;         // byte: ordinal типа расхода / источника дохода
+    private static final int GENERATION = 2;   // short: номер перезаписи операции, по кругу
+    private static final int DAY = 4;          // int: epoch day
+    private static final int AMOUNT = 8;       // long: сумма в копейках
+    private static final int ID = 16;          // long: ссылка в кучу
+    private static final int NAME = 24;
+    private static final int DESCRIPTION = 32;
+    private static final int CATEGORY = 40;
+    private static final int CARD = 48;        // long: ссылка в кучу или NO_REF
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+
+    // Одно отображение ограничено 2 ГБ
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel dataChannel;
+    private final FileChannel heapChannel;
+    private MappedByteBuffer records;
+    private int capacity;
+    private int slotCount;
+    private long heapSize;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    // Версии записей, обновленных в этом сеансе; у остальных версия 1. В файл не пишутся
+    private final Map<String, Long> versions = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private long totalAmount;
+
+    // Кэши строк из кучи
+    private final Map<Long, Category> categoriesByRef = new HashMap<>();
+    private final Map<String, Long> categoryRefs = new HashMap<>();
+    private final Map<Long, String> cardsByRef = new HashMap<>();
+    private final Map<String, Long> cardRefs = new HashMap<>();
+
+    protected MappedFinancialRepository(Path basePath) throws IOException {
+        Path dataPath = basePath.resolveSibling(basePath.getFileName() + ".dat");
+        Path heapPath = basePath.resolveSibling(basePath.getFileName() + ".heap");
+        if (dataPath.getParent() != null) {
+            Files.createDirectories(dataPath.getParent());
+        }
+
+        dataChannel = FileChannel.open(dataPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        heapChannel = FileChannel.open(heapPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        heapSize = heapChannel.size();
+
+        if (dataChannel.size() == 0) {
+            map(INITIAL_CAPACITY);
+            records.putInt(0, MAGIC);
+            records.putInt(4, VERSION);
+            records.putInt(8, RECORD_SIZE);
+            records.putInt(12, 0);
+        } else {
+            map((int) Math.max(INITIAL_CAPACITY, (dataChannel.size() - HEADER_SIZE) / RECORD_SIZE));
+            if (records.getInt(0) != MAGIC || records.getInt(4) != VERSION || records.getInt(8) != RECORD_SIZE) {
+                dataChannel.close();
+                heapChannel.close();
+                throw new IOException("Неверный формат файла данных: " + dataPath);
+            }
+            slotCount = records.getInt(12);
+            loadSlots();
+        }
+    }
+
+    protected abstract byte typeOf(T operation);
+
+    protected abstract T materialize(String id, String name, Money amount, LocalDate date,
+                                     String description, Category category, byte type, String creditCardId);
+
+    @Override
+    public void add(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        lock.writeLock().lock();
+        try {
+            if (slots.containsKey(operation.getId())) {
+                throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' уже существует");
+            }
+            int slot = freeSlots.isEmpty() ? nextSlot() : freeSlots.pop();
+            write(slot, operation, -1);
+            slots.put(operation.getId(), slot);
+            totalAmount += operation.getMoney().getMinorUnits();
+            operation.setVersion(1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи операции '" + operation.getId() + "'", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+        remove(id, -1);
+    }
+
+    @Override
+    public void delete(String id, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
+        }
+        remove(id, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void remove(String id, long expectedVersion) {
+        Objects.requireNonNull(id, "ID не может быть null");
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                throw new IllegalArgumentException("Операция с ID '" + id + "' не найдена");
+            }
+            long version = versions.getOrDefault(id, 1L);
+            if (expectedVersion >= 0 && version != expectedVersion) {
+                throw new VersionConflictException(id, expectedVersion, version);
+            }
+            slots.remove(id);
+            totalAmount -= records.getLong(position(slot) + AMOUNT);
+            records.put(position(slot) + STATE, FREE);
+            freeSlots.push(slot);
+            versions.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(T operation) {
+        replace(operation, -1);
+    }
+
+    @Override
+    public void update(T operation, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
+        }
+        replace(operation, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void replace(T operation, long expectedVersion) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(operation.getId());
+            if (slot == null) {
+                throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' не найдена");
+            }
+            long version = versions.getOrDefault(operation.getId(), 1L);
+            if (expectedVersion >= 0 && version != expectedVersion) {
+                throw new VersionConflictException(operation.getId(), expectedVersion, version);
+            }
+            relocate(operation, slot);
+            versions.put(operation.getId(), version + 1);
+            operation.setVersion(version + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи операции '" + operation.getId() + "'", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void restore(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(operation.getId());
+            relocate(operation, slot != null ? slot : -1);
+            if (operation.getVersion() > 1) {
+                versions.put(operation.getId(), operation.getVersion());
+            } else {
+                versions.remove(operation.getId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи операции '" + operation.getId() + "'", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Пишет операцию в свободную запись и освобождает прежнюю (previous = -1 - ее нет)
+    private void relocate(T operation, int previous) throws IOException {
+        int target = freeSlots.isEmpty() ? nextSlot() : freeSlots.pop();
+        try {
+            write(target, operation, previous);
+        } catch (IOException | RuntimeException e) {
+            freeSlots.push(target);
+            throw e;
+        }
+        // Старая копия освобождается, только когда новая уже видима
+        if (previous >= 0) {
+            totalAmount -= records.getLong(position(previous) + AMOUNT);
+            records.put(position(previous) + STATE, FREE);
+            freeSlots.push(previous);
+        }
+        slots.put(operation.getId(), target);
+        totalAmount += operation.getMoney().getMinorUnits();
+    }
+
+    // Пачка проверяется и применяется под одной блокировкой записи
+    @Override
+    public void addAll(Collection<T> operations) {
+        lock.writeLock().lock();
+        try {
+            FinancialRepository.super.addAll(operations);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<T> operations) {
+        lock.writeLock().lock();
+        try {
+            FinancialRepository.super.updateAll(operations);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            FinancialRepository.super.deleteAll(ids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            return slot != null ? Optional.of(materialize(slot)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findAll() {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(slots.size());
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (isLive(slot)) {
+                    result.add(materialize(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findByDateRange(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            return findSorted(slot -> {
+                int day = records.getInt(position(slot) + DAY);
+                return day >= from && day <= to;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findByCategory(String categoryId) {
+        Objects.requireNonNull(categoryId, "ID категории не может быть null");
+
+        lock.readLock().lock();
+        try {
+            return findSorted(slot -> readCategory(records.getLong(position(slot) + CATEGORY)).getId().equals(categoryId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<T> findByCreditCardId(String creditCardId) {
+        Objects.requireNonNull(creditCardId, "ID карты не может быть null");
+
+        lock.readLock().lock();
+        try {
+            return findSorted(slot -> creditCardId.equals(readCard(records.getLong(position(slot) + CARD))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String id) {
+        lock.readLock().lock();
+        try {
+            return slots.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сбрасывает изменения на диск
+    @Override
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            records.force();
+            heapChannel.force(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        dataChannel.close();
+        heapChannel.close();
+    }
+
+    protected List<T> findByType(byte type) {
+        lock.readLock().lock();
+        try {
+            return findSorted(slot -> records.get(position(slot) + TYPE) == type);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected long sumAmounts() {
+        lock.readLock().lock();
+        try {
+            return totalAmount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected long sumAbsoluteAmounts(LocalDate startDate, LocalDate endDate) {
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                int position = position(slot);
+                int day = records.getInt(position + DAY);
+                if (records.get(position + STATE) == LIVE && day >= from && day <= to) {
+                    sum += Math.abs(records.getLong(position + AMOUNT));
+                }
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected Map<String, Money> sumAbsoluteAmountsByCategory(LocalDate startDate, LocalDate endDate) {
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> totals = new HashMap<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                int position = position(slot);
+                int day = records.getInt(position + DAY);
+                if (records.get(position + STATE) == LIVE && day >= from && day <= to) {
+                    totals.merge(records.getLong(position + CATEGORY),
+                            Math.abs(records.getLong(position + AMOUNT)), Long::sum);
+                }
+            }
+
+            Map<String, Money> result = new HashMap<>();
+            totals.forEach((ref, total) ->
+                    result.merge(readCategory(ref).getName(), Money.ofMinorUnits(total), Money::plus));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected Map<String, Money> sumAmountsByType(LocalDate startDate, LocalDate endDate,
+                                                  int typeCount, IntFunction<String> typeName) {
+        int from = toDay(startDate);
+        int to = toDay(endDate);
+        lock.readLock().lock();
+        try {
+            long[] totals = new long[typeCount];
+            boolean[] present = new boolean[typeCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                int position = position(slot);
+                int day = records.getInt(position + DAY);
+                if (records.get(position + STATE) == LIVE && day >= from && day <= to) {
+                    byte type = records.get(position + TYPE);
+                    totals[type] += records.getLong(position + AMOUNT);
+                    present[type] = true;
+                }
+            }
+
+            Map<String, Money> result = new HashMap<>();
+            for (int type = 0; type < typeCount; type++) {
+                if (present[type]) {
+                    result.merge(typeName.apply(type), Money.ofMinorUnits(totals[type]), Money::plus);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private interface SlotFilter {
+        boolean test(int slot);
+    }
+
+    // Подходящие записи, сначала новые
+    private List<T> findSorted(SlotFilter filter) {
+        int count = 0;
+        long[] keys = new long[slots.size()];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot) && filter.test(slot)) {
+                keys[count++] = ((long) -records.getInt(position(slot) + DAY) << 32) | slot;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(materialize((int) keys[i]));
+        }
+        return result;
+    }
+
+    private void loadSlots() throws IOException {
+        for (int slot = 0; slot < slotCount; slot++) {
+            int position = position(slot);
+            if (records.get(position + STATE) != LIVE) {
+                freeSlots.push(slot);
+                continue;
+            }
+            String id = readString(records.getLong(position + ID));
+            Integer other = slots.get(id);
+            if (other != null) {
+                // Сбой между записью новой копии и освобождением старой: остается более поздняя
+                int older = isNewer(slot, other) ? other : slot;
+                records.put(position(older) + STATE, FREE);
+                freeSlots.push(older);
+                if (older == slot) {
+                    continue;
+                }
+                totalAmount -= records.getLong(position(other) + AMOUNT);
+            }
+            slots.put(id, slot);
+            totalAmount += records.getLong(position + AMOUNT);
+        }
+    }
+
+    private boolean isNewer(int slot, int other) {
+        return (short) (records.getShort(position(slot) + GENERATION)
+                - records.getShort(position(other) + GENERATION)) > 0;
+    }
+
+    private boolean isLive(int slot) {
+        return records.get(position(slot) + STATE) == LIVE;
+    }
+
+    private int nextSlot() throws IOException {
+        if (slotCount == capacity) {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Файл данных заполнен: " + MAX_CAPACITY + " записей");
+            }
+            map((int) Math.min((long) capacity * 2, MAX_CAPACITY));
+        }
+        int slot = slotCount++;
+        records.putInt(12, slotCount);
+        return slot;
+    }
+
+    // previous - запись, которую заменяет новая, или -1
+    private void write(int slot, T operation, int previous) throws IOException {
+        long idRef;
+        long nameRef;
+        long descriptionRef;
+        short generation = 0;
+        if (previous >= 0) {
+            int old = position(previous);
+            idRef = records.getLong(old + ID);
+            nameRef = reuseOrAppend(records.getLong(old + NAME), operation.getName());
+            descriptionRef = reuseOrAppend(records.getLong(old + DESCRIPTION), operation.getDescription());
+            generation = (short) (records.getShort(old + GENERATION) + 1);
+        } else {
+            idRef = appendString(operation.getId());
+            nameRef = appendString(operation.getName());
+            descriptionRef = appendString(operation.getDescription());
+        }
+
+        int position = position(slot);
+        records.put(position + TYPE, typeOf(operation));
+        records.putShort(position + GENERATION, generation);
+        records.putInt(position + DAY, Math.toIntExact(operation.getDate().toEpochDay()));
+        records.putLong(position + AMOUNT, operation.getMoney().getMinorUnits());
+        records.putLong(position + ID, idRef);
+        records.putLong(position + NAME, nameRef);
+        records.putLong(position + DESCRIPTION, descriptionRef);
+        records.putLong(position + CATEGORY, categoryRef(operation.getCategory()));
+        records.putLong(position + CARD, operation.hasCreditCard() ? cardRef(operation.getCreditCardId()) : NO_REF);
+        // Запись становится видимой последней
+        records.put(position + STATE, LIVE);
+    }
+
+    private T materialize(int slot) {
+        int position = position(slot);
+        T operation = materialize(
+                readString(records.getLong(position + ID)),
+                readString(records.getLong(position + NAME)),
+                Money.ofMinorUnits(records.getLong(position + AMOUNT)),
+                LocalDate.ofEpochDay(records.getInt(position + DAY)),
+                readString(records.getLong(position + DESCRIPTION)),
+                readCategory(records.getLong(position + CATEGORY)),
+                records.get(position + TYPE),
+                readCard(records.getLong(position + CARD))
+        );
+        operation.setVersion(versions.getOrDefault(operation.getId(), 1L));
+        return operation;
+    }
+
+    private long categoryRef(Category category) throws IOException {
+        Long ref = categoryRefs.get(category.getId());
+        if (ref != null && sameCategory(categoriesByRef.get(ref), category)) {
+            return ref;
+        }
+        // Новая категория или изменились ее название/описание/цвет
+        long newRef = appendStrings(category.getId(), category.getName(),
+                category.getDescription(), category.getColorCode());
+        categoryRefs.put(category.getId(), newRef);
+        categoriesByRef.put(newRef, category);
+        return newRef;
+    }
+
+    private static boolean sameCategory(Category stored, Category category) {
+        return stored != null
+                && stored.getName().equals(category.getName())
+                && stored.getDescription().equals(category.getDescription())
+                && stored.getColorCode().equals(category.getColorCode());
+    }
+
+    private long cardRef(String creditCardId) throws IOException {
+        Long ref = cardRefs.get(creditCardId);
+        if (ref == null) {
+            ref = appendString(creditCardId);
+            cardRefs.put(creditCardId, ref);
+            cardsByRef.put(ref, creditCardId);
+        }
+        return ref;
+    }
+
+    private Category readCategory(long ref) {
+        synchronized (categoriesByRef) {
+            Category category = categoriesByRef.get(ref);
+            if (category == null) {
+                String[] fields = readStrings(ref, 4);
+                category = CategoryRegistry.intern(fields[0], fields[1], fields[2], fields[3]);
+                categoriesByRef.put(ref, category);
+                categoryRefs.putIfAbsent(category.getId(), ref);
+            }
+            return category;
+        }
+    }
+
+    private String readCard(long ref) {
+        if (ref == NO_REF) {
+            return null;
+        }
+        synchronized (cardsByRef) {
+            String creditCardId = cardsByRef.computeIfAbsent(ref, this::readString);
+            cardRefs.putIfAbsent(creditCardId, ref);
+            return creditCardId;
+        }
+    }
+
+    private long reuseOrAppend(long ref, String value) throws IOException {
+        return readString(ref).equals(value) ? ref : appendString(value);
+    }
+
+    // Куча: каждая строка хранится как [int длина][UTF-8 байты]
+    private long appendString(String value) throws IOException {
+        return appendStrings(value);
+    }
+
+    private long appendStrings(String... values) throws IOException {
+        int size = 0;
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + encoded[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.flip();
+
+        long ref = heapSize;
+        while (buffer.hasRemaining()) {
+            heapSize += heapChannel.write(buffer, heapSize);
+        }
+        return ref;
+    }
+
+    private String readString(long ref) {
+        return readStrings(ref, 1)[0];
+    }
+
+    private String[] readStrings(long ref, int count) {
+        try {
+            String[] result = new String[count];
+            long position = ref;
+            for (int i = 0; i < count; i++) {
+                ByteBuffer length = readFully(position, Integer.BYTES);
+                ByteBuffer bytes = readFully(position + Integer.BYTES, length.getInt());
+                result[i] = new String(bytes.array(), StandardCharsets.UTF_8);
+                position += Integer.BYTES + bytes.capacity();
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения строки по смещению " + ref, e);
+        }
+    }
+
+    private ByteBuffer readFully(long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (heapChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла-кучи");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void map(int newCapacity) throws IOException {
+        records = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+        capacity = newCapacity;
+    }
+
+    private static int position(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private static int toDay(LocalDate date) {
+        long day = date.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+}
@@ -0,0 +1,60 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.Category;
+import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
+import financialmanager.model.enums.IncomeSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class MappedIncomeRepository extends MappedFinancialRepository<Income> implements IncomeRepository {
+    private static final IncomeSource[] SOURCES = IncomeSource.values();
+
+    public MappedIncomeRepository(Path basePath) throws IOException {
+        super(basePath);
+    }
+
+    @Override
+    protected byte typeOf(Income income) {
+        return (byte) income.getIncomeSource().ordinal();
+    }
+
+    @Override
+    protected Income materialize(String id, String name, Money amount, LocalDate date,
+                                 String description, Category category, byte type, String creditCardId) {
+        return new Income(id, name, amount, date, description, category, SOURCES[type], creditCardId);
+    }
+
+    @Override
+    public List<Income> findByIncomeSource(IncomeSource incomeSource) {
+        Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
+
+        return findByType((byte) incomeSource.ordinal());
+    }
+
+    @Override
+    public Map<String, Money> getAmountsBySource(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return sumAmountsByType(startDate, endDate, SOURCES.length,
+                ordinal -> SOURCES[ordinal].getDisplayName());
+    }
+
+    @Override
+    public Money getTotalIncomes(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return Money.ofMinorUnits(sumAbsoluteAmounts(startDate, endDate));
+    }
+
+    @Override
+    public Money getTotalBalance() {
+        return Money.ofMinorUnits(sumAmounts());
+    }
+}
@@ -0,0 +1,50 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Money;
+import financialmanager.model.enums.ExpenseType;
+import java.io.IOException;
+import java.util.Objects;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class PartitionedExpenseRepository extends PartitionedFinancialRepository<Expense> implements ExpenseRepository {
+
+    public PartitionedExpenseRepository(SegmentStore<Expense> store, int maxResidentMonths) throws IOException {
+        super(store, maxResidentMonths);
+    }
+
+    @Override
+    public List<Expense> findByExpenseType(ExpenseType expenseType) {
+        Objects.requireNonNull(expenseType, "Тип расхода не может быть null");
+
+        return findMatching(expense -> expense.getExpenseType() == expenseType);
+    }
+
+    @Override
+    public Map<String, Money> getAmountsByCategory(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return findInRange(startDate, endDate).stream()
+                .collect(Collectors.groupingBy(
+                        expense -> expense.getCategory().getName(),
+                        Collectors.reducing(Money.ZERO, expense -> expense.getMoney().abs(), Money::plus)
+                ));
+    }
+
+    @Override
+    public Money getTotalExpenses(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return Money.ofMinorUnits(getAbsoluteAmount(startDate, endDate));
+    }
+
+    @Override
+    public Money getTotalBalance() {
+        return Money.ofMinorUnits(getTotalAmount());
+    }
+}
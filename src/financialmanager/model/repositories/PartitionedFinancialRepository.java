@@ -0,0 +1,460 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.FinancialOperation;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Хранилище, разбитое на месячные сегменты. В памяти держится не больше maxResidentMonths
+// месяцев (текущий месяц - всегда), остальные загружаются при обращении и вытесняются по LRU.
+// Количество операций и итоги берутся из сводок по месяцам без загрузки сегментов,
+// месяц операции по ID - из индекса, который хранилище ведет рядом с сегментами.
+public abstract class PartitionedFinancialRepository<T extends FinancialOperation>
+        implements FinancialRepository<T>, Flushable {
+
+    public interface SegmentStore<T> {
+        Map<YearMonth, MonthSummary> loadSummaries() throws IOException;
+        // Месяц каждой сохраненной операции по ID без загрузки сегментов; после loadSummaries
+        Map<String, YearMonth> loadIndex() throws IOException;
+        List<T> load(YearMonth month) throws IOException;
+        // Пустой список удаляет сегмент
+        void save(YearMonth month, Collection<T> operations, MonthSummary summary) throws IOException;
+    }
+
+    // Итоги месяца в копейках
+    public record MonthSummary(int count, long total, long absoluteTotal) {
+    }
+
+    private static final Comparator<FinancialOperation> NEWEST_FIRST =
+            Comparator.comparing(FinancialOperation::getDate).reversed()
+                    .thenComparing(FinancialOperation::getId);
+
+    private final SegmentStore<T> store;
+    private final int maxResidentMonths;
+    private final YearMonth hotMonth;
+    private final NavigableMap<YearMonth, MonthSummary> summaries = new TreeMap<>();
+    // Порядок доступа: первым идет давно не использованный месяц
+    private final LinkedHashMap<YearMonth, Map<String, T>> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<YearMonth> modifiedMonths = new HashSet<>();
+    // Месяц каждой операции по ID: поиск и проверка уникальности без загрузки сегментов
+    private final Map<String, YearMonth> months = new HashMap<>();
+    // Версии обновлявшихся операций; переживают вытеснение месяца, у остальных версия 1
+    private final Map<String, Long> versions = new HashMap<>();
+    // Сумма в копейках, под которой операция учтена в сводке своего месяца, - только для месяцев
+    // в памяти. Сущность могут изменить на месте до update, поэтому прежнюю сумму берем отсюда
+    private final Map<String, Long> amounts = new HashMap<>();
+    private final ExecutorService prefetcher;
+    private YearMonth lastQueryStart;
+
+    protected PartitionedFinancialRepository(SegmentStore<T> store, int maxResidentMonths) throws IOException {
+        this.store = Objects.requireNonNull(store, "Хранилище не может быть null");
+        if (maxResidentMonths < 1) {
+            throw new IllegalArgumentException("В памяти должен оставаться хотя бы один месяц");
+        }
+        this.maxResidentMonths = maxResidentMonths;
+        this.hotMonth = YearMonth.now();
+        this.summaries.putAll(store.loadSummaries());
+        this.months.putAll(store.loadIndex());
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        segment(hotMonth);
+    }
+
+    @Override
+    public synchronized void add(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        if (months.containsKey(operation.getId())) {
+            throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' уже существует");
+        }
+        YearMonth month = YearMonth.from(operation.getDate());
+        segment(month).put(operation.getId(), operation);
+        months.put(operation.getId(), month);
+        operation.setVersion(1);
+        include(month, operation);
+    }
+
+    // Пачка раскладывается по месяцам, и каждый месяц загружается один раз
+    @Override
+    public synchronized void addAll(Collection<T> operations) {
+        Map<YearMonth, List<T>> batch = new TreeMap<>();
+        Set<String> ids = new HashSet<>();
+        for (T operation : operations) {
+            Objects.requireNonNull(operation, "Операция не может быть null");
+            if (!ids.add(operation.getId()) || months.containsKey(operation.getId())) {
+                throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' уже существует");
+            }
+            batch.computeIfAbsent(YearMonth.from(operation.getDate()), month -> new ArrayList<>()).add(operation);
+        }
+        for (Map.Entry<YearMonth, List<T>> entry : batch.entrySet()) {
+            Map<String, T> target = segment(entry.getKey());
+            for (T operation : entry.getValue()) {
+                target.put(operation.getId(), operation);
+                months.put(operation.getId(), entry.getKey());
+                operation.setVersion(1);
+                include(entry.getKey(), operation);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<T> operations) {
+        FinancialRepository.super.updateAll(operations);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<String> ids) {
+        FinancialRepository.super.deleteAll(ids);
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+        remove(id, -1);
+    }
+
+    @Override
+    public synchronized void delete(String id, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
+        }
+        remove(id, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void remove(String id, long expectedVersion) {
+        Objects.requireNonNull(id, "ID не может быть null");
+        YearMonth month = months.get(id);
+        if (month == null) {
+            throw new IllegalArgumentException("Операция с ID '" + id + "' не найдена");
+        }
+        long version = versions.getOrDefault(id, 1L);
+        if (expectedVersion >= 0 && version != expectedVersion) {
+            throw new VersionConflictException(id, expectedVersion, version);
+        }
+        if (!exclude(month, id)) {
+            months.remove(id);
+            throw new IllegalArgumentException("Операция с ID '" + id + "' не найдена");
+        }
+        months.remove(id);
+        versions.remove(id);
+    }
+
+    @Override
+    public synchronized void update(T operation) {
+        replace(operation, -1);
+    }
+
+    @Override
+    public synchronized void update(T operation, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Версия не может быть отрицательной");
+        }
+        replace(operation, expectedVersion);
+    }
+
+    // expectedVersion = -1 - без проверки версии
+    private void replace(T operation, long expectedVersion) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        YearMonth from = months.get(operation.getId());
+        if (from == null) {
+            throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' не найдена");
+        }
+        long version = versions.getOrDefault(operation.getId(), 1L);
+        if (expectedVersion >= 0 && version != expectedVersion) {
+            throw new VersionConflictException(operation.getId(), expectedVersion, version);
+        }
+        // Дата могла измениться: операция переезжает в сегмент нового месяца.
+        // Старый месяц отмечается до загрузки нового, чтобы при вытеснении он был записан
+        if (!exclude(from, operation.getId())) {
+            months.remove(operation.getId());
+            throw new IllegalArgumentException("Операция с ID '" + operation.getId() + "' не найдена");
+        }
+        versions.put(operation.getId(), version + 1);
+        operation.setVersion(version + 1);
+        YearMonth to = YearMonth.from(operation.getDate());
+        segment(to).put(operation.getId(), operation);
+        months.put(operation.getId(), to);
+        include(to, operation);
+    }
+
+    @Override
+    public synchronized void restore(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        YearMonth from = months.get(operation.getId());
+        if (from != null) {
+            exclude(from, operation.getId());
+        }
+        YearMonth to = YearMonth.from(operation.getDate());
+        segment(to).put(operation.getId(), operation);
+        months.put(operation.getId(), to);
+        include(to, operation);
+        if (operation.getVersion() > 1) {
+            versions.put(operation.getId(), operation.getVersion());
+        } else {
+            versions.remove(operation.getId());
+        }
+    }
+
+    @Override
+    public synchronized Optional<T> findById(String id) {
+        YearMonth month = months.get(id);
+        if (month == null) {
+            return Optional.empty();
+        }
+        T operation = segment(month).get(id);
+        if (operation == null) {
+            // Индекс отстал от сегмента
+            months.remove(id);
+        }
+        return Optional.ofNullable(operation);
+    }
+
+    // Загружает все месяцы, не меняя набор месяцев в памяти
+    @Override
+    public synchronized List<T> findAll() {
+        List<T> result = new ArrayList<>(count());
+        forEachMonth(summaries.keySet(), result::addAll);
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    @Override
+    public synchronized List<T> findByDateRange(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+
+        List<T> result = new ArrayList<>();
+        for (YearMonth month : monthsBetween(startDate, endDate)) {
+            for (T operation : segment(month).values()) {
+                if (operation.isInDateRange(startDate, endDate)) {
+                    result.add(operation);
+                }
+            }
+        }
+        result.sort(NEWEST_FIRST);
+        prefetchAdjacent(YearMonth.from(startDate), YearMonth.from(endDate));
+        return result;
+    }
+
+    @Override
+    public synchronized List<T> findByCategory(String categoryId) {
+        Objects.requireNonNull(categoryId, "ID категории не может быть null");
+
+        return findMatching(operation -> operation.getCategory().getId().equals(categoryId));
+    }
+
+    @Override
+    public synchronized List<T> findByCreditCardId(String creditCardId) {
+        Objects.requireNonNull(creditCardId, "ID карты не может быть null");
+
+        return findMatching(operation -> creditCardId.equals(operation.getCreditCardId()));
+    }
+
+    @Override
+    public synchronized boolean exists(String id) {
+        return months.containsKey(id);
+    }
+
+    @Override
+    public synchronized int count() {
+        int count = 0;
+        for (MonthSummary summary : summaries.values()) {
+            count += summary.count();
+        }
+        return count;
+    }
+
+    // Записывает измененные месяцы
+    @Override
+    public synchronized void flush() throws IOException {
+        for (YearMonth month : new ArrayList<>(modifiedMonths)) {
+            persist(month, resident.get(month));
+        }
+    }
+
+    protected synchronized List<T> findMatching(Predicate<T> predicate) {
+        List<T> result = new ArrayList<>();
+        forEachMonth(summaries.keySet(), operations -> {
+            for (T operation : operations) {
+                if (predicate.test(operation)) {
+                    result.add(operation);
+                }
+            }
+        });
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    protected synchronized List<T> findInRange(LocalDate startDate, LocalDate endDate) {
+        List<T> result = new ArrayList<>();
+        for (YearMonth month : monthsBetween(startDate, endDate)) {
+            for (T operation : segment(month).values()) {
+                if (operation.isInDateRange(startDate, endDate)) {
+                    result.add(operation);
+                }
+            }
+        }
+        return result;
+    }
+
+    protected synchronized long getTotalAmount() {
+        long total = 0;
+        for (MonthSummary summary : summaries.values()) {
+            total += summary.total();
+        }
+        return total;
+    }
+
+    // Полностью покрытые периодом месяцы берутся из сводок, граничные - из сегментов
+    protected synchronized long getAbsoluteAmount(LocalDate startDate, LocalDate endDate) {
+        long total = 0;
+        for (YearMonth month : monthsBetween(startDate, endDate)) {
+            if (!startDate.isAfter(month.atDay(1)) && !endDate.isBefore(month.atEndOfMonth())) {
+                total += summaries.get(month).absoluteTotal();
+                continue;
+            }
+            for (T operation : segment(month).values()) {
+                if (operation.isInDateRange(startDate, endDate)) {
+                    total += Math.abs(operation.getMoney().getMinorUnits());
+                }
+            }
+        }
+        return total;
+    }
+
+    private List<YearMonth> monthsBetween(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+        return new ArrayList<>(summaries.subMap(YearMonth.from(startDate), true, YearMonth.from(endDate), true).keySet());
+    }
+
+    // Месяцы из памяти отдаются как есть, остальные читаются без помещения в кэш
+    private void forEachMonth(Collection<YearMonth> months, Consumer<Collection<T>> action) {
+        for (YearMonth month : new ArrayList<>(months)) {
+            Map<String, T> segment = resident.get(month);
+            action.accept(segment != null ? segment.values() : read(month));
+        }
+    }
+
+    private Map<String, T> segment(YearMonth month) {
+        Map<String, T> segment = resident.get(month);
+        if (segment == null) {
+            segment = new HashMap<>();
+            if (summaries.containsKey(month)) {
+                for (T operation : read(month)) {
+                    segment.put(operation.getId(), operation);
+                    amounts.put(operation.getId(), operation.getMoney().getMinorUnits());
+                }
+            }
+            resident.put(month, segment);
+            evict(month);
+        }
+        return segment;
+    }
+
+    private void evict(YearMonth keep) {
+        Iterator<Map.Entry<YearMonth, Map<String, T>>> iterator = resident.entrySet().iterator();
+        while (resident.size() > maxResidentMonths && iterator.hasNext()) {
+            Map.Entry<YearMonth, Map<String, T>> entry = iterator.next();
+            YearMonth month = entry.getKey();
+            if (month.equals(hotMonth) || month.equals(keep)) {
+                continue;
+            }
+            if (modifiedMonths.contains(month)) {
+                try {
+                    persist(month, entry.getValue());
+                } catch (IOException e) {
+                    // Несохраненный месяц остается в памяти до следующей попытки
+                    System.err.println("✗ Ошибка записи месяца " + month + ": " + e.getMessage());
+                    continue;
+                }
+            }
+            amounts.keySet().removeAll(entry.getValue().keySet());
+            iterator.remove();
+        }
+    }
+
+    private void persist(YearMonth month, Map<String, T> segment) throws IOException {
+        if (segment != null) {
+            store.save(month, segment.values(), summaries.getOrDefault(month, new MonthSummary(0, 0, 0)));
+        }
+        modifiedMonths.remove(month);
+    }
+
+    private List<T> read(YearMonth month) {
+        try {
+            List<T> operations = store.load(month);
+            for (T operation : operations) {
+                operation.setVersion(versions.getOrDefault(operation.getId(), 1L));
+            }
+            return operations;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения месяца " + month, e);
+        }
+    }
+
+    private void include(YearMonth month, T operation) {
+        long amount = operation.getMoney().getMinorUnits();
+        amounts.put(operation.getId(), amount);
+        adjust(month, 1, amount);
+    }
+
+    // Убирает операцию из сегмента и сводки месяца; false - если ее там нет
+    private boolean exclude(YearMonth month, String id) {
+        if (segment(month).remove(id) == null) {
+            return false;
+        }
+        adjust(month, -1, amounts.remove(id));
+        return true;
+    }
+
+    // Сводка меняется на разницу без пересчета месяца; sign = 1 - операция добавлена, -1 - убрана
+    private void adjust(YearMonth month, int sign, long amount) {
+        modifiedMonths.add(month);
+        MonthSummary summary = summaries.getOrDefault(month, new MonthSummary(0, 0, 0));
+        int count = summary.count() + sign;
+        if (count == 0) {
+            summaries.remove(month);
+        } else {
+            summaries.put(month, new MonthSummary(count, summary.total() + sign * amount,
+                    summary.absoluteTotal() + sign * Math.abs(amount)));
+        }
+    }
+
+    // Направление перехода между месяцами определяет, какой соседний месяц подгрузить заранее
+    private void prefetchAdjacent(YearMonth startMonth, YearMonth endMonth) {
+        YearMonth previous = lastQueryStart;
+        lastQueryStart = startMonth;
+        if (previous == null || previous.equals(startMonth)) {
+            return;
+        }
+        YearMonth next = startMonth.isBefore(previous) ? startMonth.minusMonths(1) : endMonth.plusMonths(1);
+        if (!summaries.containsKey(next) || resident.containsKey(next)) {
+            return;
+        }
+        prefetcher.execute(() -> {
+            try {
+                synchronized (this) {
+                    segment(next);
+                }
+            } catch (UncheckedIOException e) {
+                System.err.println("✗ Ошибка предзагрузки месяца " + next + ": " + e.getMessage());
+            }
+        });
+    }
+}
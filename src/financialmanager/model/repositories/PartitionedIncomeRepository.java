@@ -0,0 +1,50 @@
+package financialmanager.model.repositories;
+
+import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
+import financialmanager.model.enums.IncomeSource;
+import java.io.IOException;
+import java.util.Objects;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class PartitionedIncomeRepository extends PartitionedFinancialRepository<Income> implements IncomeRepository {
+
+    public PartitionedIncomeRepository(SegmentStore<Income> store, int maxResidentMonths) throws IOException {
+        super(store, maxResidentMonths);
+    }
+
+    @Override
+    public List<Income> findByIncomeSource(IncomeSource incomeSource) {
+        Objects.requireNonNull(incomeSource, "Источник дохода не может быть null");
+
+        return findMatching(income -> income.getIncomeSource() == incomeSource);
+    }
+
+    @Override
+    public Map<String, Money> getAmountsBySource(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return findInRange(startDate, endDate).stream()
+                .collect(Collectors.groupingBy(
+                        income -> income.getIncomeSource().getDisplayName(),
+                        Collectors.reducing(Money.ZERO, Income::getMoney, Money::plus)
+                ));
+    }
+
+    @Override
+    public Money getTotalIncomes(LocalDate startDate, LocalDate endDate) {
+        Objects.requireNonNull(startDate, "Начальная дата не может быть null");
+        Objects.requireNonNull(endDate, "Конечная дата не может быть null");
+
+        return Money.ofMinorUnits(getAbsoluteAmount(startDate, endDate));
+    }
+
+    @Override
+    public Money getTotalBalance() {
+        return Money.ofMinorUnits(getTotalAmount());
+    }
+}
@@ -0,0 +1,30 @@
+package financialmanager.model.repositories;
+
+// Операцию изменили после того, как вызывающий прочитал ее версию
+public class VersionConflictException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final String operationId;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public VersionConflictException(String operationId, long expectedVersion, long actualVersion) {
+        super("Операция '" + operationId + "' изменена другим пользователем: ожидалась версия "
+                + expectedVersion + ", текущая " + actualVersion);
+        this.operationId = operationId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public String getOperationId() {
+        return operationId;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
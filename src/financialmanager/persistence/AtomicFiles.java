@@ -0,0 +1,57 @@
+package financialmanager.persistence;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Запись файла целиком: во временный файл рядом, fsync, затем атомарная подмена старого
+class AtomicFiles {
+    interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    static void write(Path target, StreamWriter content) throws IOException {
+        write(target, StorageCodecs.NONE, content);
+    }
+
+    // Содержимое проходит через кодек сжатия до fsync
+    static void write(Path target, StorageCodec codec, StreamWriter content) throws IOException {
+        // Создаем директорию если не существует
+        File parentDir = target.toAbsolutePath().getParent().toFile();
+        if (!parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Закрытие потока кодека завершает сжатие, но не должно закрыть канал до fsync
+            OutputStream file = new FilterOutputStream(Channels.newOutputStream(channel)) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            try (OutputStream out = codec.compress(file)) {
+                content.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
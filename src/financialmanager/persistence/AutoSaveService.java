@@ -0,0 +1,170 @@
+package financialmanager.persistence;
+
+import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.entities.Income;
+import financialmanager.model.managers.CategoryRegistry;
+import financialmanager.model.repositories.ExpenseRepository;
+import financialmanager.model.repositories.IncomeRepository;
+import financialmanager.service.OperationJournal;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Фоновое автосохранение: изменения помечают расходы, доходы или категории как
+// измененные, серия правок откладывает запись на DEBOUNCE_MS, но не дольше MAX_DELAY_MS
+// с первой несохраненной правки. Запись выполняется в отдельном потоке, не в EDT.
+public class AutoSaveService {
+    private static final long DEBOUNCE_MS = 1000;
+    private static final long MAX_DELAY_MS = 5000;
+
+    private final JsonDataManager dataManager;
+    private final ExpenseRepository expenseRepository;
+    private final IncomeRepository incomeRepository;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean expensesDirty = new AtomicBoolean();
+    private final AtomicBoolean incomesDirty = new AtomicBoolean();
+    private final AtomicBoolean categoriesDirty = new AtomicBoolean();
+
+    private ScheduledFuture<?> pendingSave;
+    private long firstDirtyAt;
+
+    public AutoSaveService(JsonDataManager dataManager,
+                           ExpenseRepository expenseRepository,
+                           IncomeRepository incomeRepository) {
+        this.dataManager = dataManager;
+        this.expenseRepository = expenseRepository;
+        this.incomeRepository = incomeRepository;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public OperationJournal<Expense> expenseJournal() {
+        return new DirtyMarker<>(expensesDirty);
+    }
+
+    public OperationJournal<Income> incomeJournal() {
+        return new DirtyMarker<>(incomesDirty);
+    }
+
+    public void markCategoriesDirty() {
+        markDirty(categoriesDirty);
+    }
+
+    public void markAllDirty() {
+        expensesDirty.set(true);
+        incomesDirty.set(true);
+        markDirty(categoriesDirty);
+    }
+
+    // Сохраняет оставшиеся изменения и останавливает поток; ждет не дольше timeoutMs
+    public boolean shutdown(long timeoutMs) {
+        synchronized (this) {
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+            }
+            executor.execute(this::saveDirty);
+            executor.shutdown();
+        }
+        try {
+            return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void markDirty(AtomicBoolean flag) {
+        flag.set(true);
+        synchronized (this) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (pendingSave == null) {
+                firstDirtyAt = now;
+            } else {
+                pendingSave.cancel(false);
+            }
+            long delay = Math.min(DEBOUNCE_MS, Math.max(0, firstDirtyAt + MAX_DELAY_MS - now));
+            pendingSave = executor.schedule(this::saveDirty, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void saveDirty() {
+        synchronized (this) {
+            pendingSave = null;
+        }
+        try {
+            if (expensesDirty.getAndSet(false)) {
+                dataManager.saveExpenses(expenseRepository);
+            }
+        } catch (Exception e) {
+            expensesDirty.set(true);
+            System.err.println("✗ Ошибка автосохранения расходов: " + e.getMessage());
+        }
+        try {
+            if (incomesDirty.getAndSet(false)) {
+                dataManager.saveIncomes(incomeRepository);
+            }
+        } catch (Exception e) {
+            incomesDirty.set(true);
+            System.err.println("✗ Ошибка автосохранения доходов: " + e.getMessage());
+        }
+        try {
+            if (categoriesDirty.getAndSet(false)) {
+                dataManager.saveCategories(CategoryRegistry.getAll());
+            }
+        } catch (Exception e) {
+            categoriesDirty.set(true);
+            System.err.println("✗ Ошибка автосохранения категорий: " + e.getMessage());
+        }
+    }
+
+    private class DirtyMarker<T extends FinancialOperation> implements OperationJournal<T> {
+        private final AtomicBoolean flag;
+
+        DirtyMarker(AtomicBoolean flag) {
+            this.flag = flag;
+        }
+
+        @Override
+        public void recordAdded(T operation) {
+            markDirty(flag);
+        }
+
+        @Override
+        public void recordUpdated(T operation) {
+            markDirty(flag);
+        }
+
+        @Override
+        public void recordDeleted(String id) {
+            markDirty(flag);
+        }
+
+        // На всю пачку - одна отметка и один отложенный запуск сохранения
+        @Override
+        public void recordAddedAll(List<T> operations) {
+            markDirty(flag);
+        }
+
+        @Override
+        public void recordUpdatedAll(List<T> operations) {
+            markDirty(flag);
+        }
+
+        @Override
+        public void recordDeletedAll(List<String> ids) {
+            markDirty(flag);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package financialmanager.persistence;
+
+import financialmanager.model.entities.Category;
+import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
+import financialmanager.model.enums.ExpenseType;
+import financialmanager.model.enums.IncomeSource;
+import financialmanager.model.managers.CategoryRegistry;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Двоичный снимок операций. Формат (все числа кроме заголовка - varint):
+//   заголовок:   MAGIC (int), VERSION (short)
+//   строки:      количество, затем [длина][UTF-8] для каждой строки
+//   типы:        количество, затем ссылка на имя константы перечисления
+//   категории:   количество, затем ссылки на id, название, описание, цвет
+//   карты:       количество, затем ссылка на id карты
+//   записи:      количество, затем для каждой записи id (строкой), ссылки на название
+//                и описание, индексы типа, категории и карты (0 - без карты),
+//                разница дней с предыдущей записью и сумма в копейках (zigzag)
+public class BinarySnapshot<T extends FinancialOperation> {
+    private static final int MAGIC = 0x464D4253; // "FMBS"
+    private static final short VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public interface Factory<T> {
+        T create(String id, String name, Money amount, LocalDate date, String description,
+                 Category category, String type, String creditCardId);
+    }
+
+    public static final BinarySnapshot<Expense> EXPENSES = new BinarySnapshot<>(
+            expense -> expense.getExpenseType().name(),
+            (id, name, amount, date, description, category, type, creditCardId) -> new Expense(
+                    id, name, amount, date, description, category, ExpenseType.valueOf(type), creditCardId));
+
+    public static final BinarySnapshot<Income> INCOMES = new BinarySnapshot<>(
+            income -> income.getIncomeSource().name(),
+            (id, name, amount, date, description, category, type, creditCardId) -> new Income(
+                    id, name, amount, date, description, category, IncomeSource.valueOf(type), creditCardId));
+
+    private final Function<T, String> typeName;
+    private final Factory<T> factory;
+
+    private BinarySnapshot(Function<T, String> typeName, Factory<T> factory) {
+        this.typeName = typeName;
+        this.factory = factory;
+    }
+
+    String typeOf(T operation) {
+        return typeName.apply(operation);
+    }
+
+    public static boolean hasMagic(byte[] header) {
+        return header.length >= 4 && ((header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16
+                | (header[2] & 0xFF) << 8 | (header[3] & 0xFF)) == MAGIC;
+    }
+
+    public void write(List<T> operations, OutputStream out) throws IOException {
+        // Первый проход собирает словари, второй пишет записи
+        Dictionary strings = new Dictionary();
+        Dictionary types = new Dictionary();
+        // Категории из JSON - отдельные экземпляры на каждую запись, поэтому словарь по id
+        Map<String, Integer> categories = new HashMap<>();
+        List<Category> categoryList = new ArrayList<>();
+        Dictionary cards = new Dictionary();
+        for (T operation : operations) {
+            strings.indexOf(operation.getName());
+            strings.indexOf(operation.getDescription());
+            types.indexOf(typeName.apply(operation));
+            Category category = operation.getCategory();
+            if (categories.putIfAbsent(category.getId(), categoryList.size()) == null) {
+                categoryList.add(category);
+            }
+            if (operation.getCreditCardId() != null) {
+                cards.indexOf(operation.getCreditCardId());
+            }
+        }
+        for (String type : types.values) {
+            strings.indexOf(type);
+        }
+        for (Category category : categoryList) {
+            strings.indexOf(category.getId());
+            strings.indexOf(category.getName());
+            strings.indexOf(category.getDescription());
+            strings.indexOf(category.getColorCode());
+        }
+        for (String card : cards.values) {
+            strings.indexOf(card);
+        }
+
+        Output output = new Output(out);
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+
+        output.writeVarLong(strings.values.size());
+        for (String value : strings.values) {
+            output.writeString(value);
+        }
+        output.writeVarLong(types.values.size());
+        for (String type : types.values) {
+            output.writeVarLong(strings.indexOf(type));
+        }
+        output.writeVarLong(categoryList.size());
+        for (Category category : categoryList) {
+            output.writeVarLong(strings.indexOf(category.getId()));
+            output.writeVarLong(strings.indexOf(category.getName()));
+            output.writeVarLong(strings.indexOf(category.getDescription()));
+            output.writeVarLong(strings.indexOf(category.getColorCode()));
+        }
+        output.writeVarLong(cards.values.size());
+        for (String card : cards.values) {
+            output.writeVarLong(strings.indexOf(card));
+        }
+
+        output.writeVarLong(operations.size());
+        long previousDay = 0;
+        for (T operation : operations) {
+            long day = operation.getDate().toEpochDay();
+            String card = operation.getCreditCardId();
+            output.writeString(operation.getId());
+            output.writeVarLong(strings.indexOf(operation.getName()));
+            output.writeVarLong(strings.indexOf(operation.getDescription()));
+            output.writeVarLong(types.indexOf(typeName.apply(operation)));
+            output.writeVarLong(categories.get(operation.getCategory().getId()));
+            output.writeVarLong(card == null ? 0 : cards.indexOf(card) + 1);
+            output.writeZigZag(day - previousDay);
+            output.writeZigZag(operation.getMoney().getMinorUnits());
+            previousDay = day;
+        }
+        output.flush();
+    }
+
+    // Читает снимок и передает операции пачками по batchSize; возвращает число записей
+    public int read(InputStream in, int batchSize, Consumer<List<T>> batchConsumer) throws IOException {
+        try {
+            return readRecords(in, batchSize, batchConsumer);
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Поврежденный снимок данных: " + e.getMessage(), e);
+        }
+    }
+
+    private int readRecords(InputStream in, int batchSize, Consumer<List<T>> batchConsumer) throws IOException {
+        Input input = new Input(in);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Файл не является снимком данных");
+        }
+        short version = input.readShort();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия снимка: " + version);
+        }
+
+        String[] strings = new String[input.readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = input.readString();
+        }
+        String[] types = new String[input.readCount()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = strings[input.readCount()];
+        }
+        Category[] categories = new Category[input.readCount()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = CategoryRegistry.intern(strings[input.readCount()], strings[input.readCount()],
+                    strings[input.readCount()], strings[input.readCount()]);
+        }
+        String[] cards = new String[input.readCount() + 1];
+        for (int i = 1; i < cards.length; i++) {
+            cards[i] = strings[input.readCount()];
+        }
+
+        int count = input.readCount();
+        List<T> batch = new ArrayList<>(Math.min(count, batchSize));
+        long day = 0;
+        for (int i = 0; i < count; i++) {
+            String id = input.readString();
+            String name = strings[input.readCount()];
+            String description = strings[input.readCount()];
+            String type = types[input.readCount()];
+            Category category = categories[input.readCount()];
+            String card = cards[input.readCount()];
+            day += input.readZigZag();
+            Money amount = Money.ofMinorUnits(input.readZigZag());
+
+            batch.add(factory.create(id, name, amount, LocalDate.ofEpochDay(day), description, category, type, card));
+            if (batch.size() == batchSize) {
+                batchConsumer.accept(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        return count;
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+    }
+
+    private static class Output {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeInt(int value) throws IOException {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeShort(short value) throws IOException {
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeZigZag(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            if (bytes.length > buffer.length - position) {
+                flushBuffer();
+            }
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeByte(int value) throws IOException {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static class Input {
+        private final InputStream in;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        int readInt() throws IOException {
+            return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+        }
+
+        short readShort() throws IOException {
+            return (short) (readByte() << 8 | readByte());
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Поврежденное число в снимке");
+        }
+
+        int readCount() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Поврежденный индекс в снимке: " + value);
+            }
+            return (int) value;
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() throws IOException {
+            int length = readCount();
+            if (length > limit - position) {
+                fill(length);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        int readByte() throws IOException {
+            if (position == limit) {
+                fill(1);
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        // Гарантирует, что в буфере доступно не меньше required байт
+        private void fill(int required) throws IOException {
+            int remaining = limit - position;
+            if (required > buffer.length) {
+                byte[] larger = new byte[required];
+                System.arraycopy(buffer, position, larger, 0, remaining);
+                buffer = larger;
+            } else {
+                System.arraycopy(buffer, position, buffer, 0, remaining);
+            }
+            position = 0;
+            limit = remaining;
+            while (limit < required) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    throw new EOFException("Неожиданный конец снимка");
+                }
+                limit += read;
+            }
+        }
+    }
+}
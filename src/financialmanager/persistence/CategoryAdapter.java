@@ -2,6 +2,7 @@ package financialmanager.persistence;
 
 import com.google.gson.*;
 import financialmanager.model.entities.Category;
+import financialmanager.model.managers.CategoryRegistry;
 
 import java.lang.reflect.Type;
 
@@ -21,7 +22,8 @@ public class CategoryAdapter implements JsonSerializer<Category>, JsonDeserializ
     public Category deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
             throws JsonParseException {
         JsonObject jsonObject = json.getAsJsonObject();
-        return new Category(
+        // Все операции ссылаются на общий экземпляр категории
+        return CategoryRegistry.intern(
                 jsonObject.get("id").getAsString(),
                 jsonObject.get("name").getAsString(),
                 jsonObject.get("description").getAsString(),
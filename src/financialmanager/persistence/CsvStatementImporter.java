@@ -0,0 +1,319 @@
+package financialmanager.persistence;
+
+import financialmanager.model.entities.Category;
+import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
+import financialmanager.model.enums.ExpenseType;
+import financialmanager.model.enums.IncomeSource;
+import financialmanager.model.managers.CategoryRegistry;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Импорт банковской выписки из CSV. Файл отображается в память и делится на куски
+// по границам строк; куски разбираются и проверяются параллельно, а результаты
+// передаются получателям пачками по одной на кусок, в порядке строк файла.
+// Отрицательные суммы становятся расходами, положительные - доходами.
+// Поля в кавычках поддерживаются, переводы строк внутри кавычек - нет.
+public class CsvStatementImporter {
+    private static final int CHUNK_SIZE = 1 << 22;
+    // Подробности хранятся только для первых отклоненных строк, считаются все
+    private static final int MAX_REPORTED_LINES = 1000;
+    // Встроенная категория "Прочее" из списка категорий по умолчанию
+    private static final String DEFAULT_CATEGORY_ID = "10";
+    private static final String DEFAULT_CATEGORY_NAME = "Прочее";
+
+    // Номера столбцов с нуля; -1 - столбца нет
+    public record ColumnMapping(char delimiter, boolean hasHeader, int dateColumn, int amountColumn,
+                                int nameColumn, int descriptionColumn, int categoryColumn,
+                                String datePattern) {
+        // Дата;Сумма;Название;Описание;Категория с заголовком, дата в виде дд.мм.гггг
+        public static ColumnMapping defaults() {
+            return new ColumnMapping(';', true, 0, 1, 2, 3, 4, "dd.MM.yyyy");
+        }
+    }
+
+    public record RejectedLine(long lineNumber, String line, String reason) {
+    }
+
+    public record ImportReport(int expenses, int incomes, int rejectedCount, List<RejectedLine> rejected) {
+    }
+
+    private final ColumnMapping mapping;
+    private final DateTimeFormatter dateFormatter;
+    private final int threads;
+
+    public CsvStatementImporter(ColumnMapping mapping) {
+        this(mapping, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvStatementImporter(ColumnMapping mapping, int threads) {
+        this.mapping = Objects.requireNonNull(mapping, "Сопоставление столбцов не может быть null");
+        if (threads < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным");
+        }
+        this.dateFormatter = DateTimeFormatter.ofPattern(mapping.datePattern());
+        this.threads = threads;
+    }
+
+    public ImportReport importFile(Path file, Consumer<List<Expense>> expenseSink,
+                                   Consumer<List<Income>> incomeSink) throws IOException {
+        Objects.requireNonNull(file, "Файл не может быть null");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Файл выписки слишком большой: " + channel.size() + " байт");
+            }
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return importChunks(content, expenseSink, incomeSink);
+        }
+    }
+
+    // Строки без известной категории попадают в уже загруженную категорию "Прочее"
+    private static Category defaultCategory(Map<String, Category> categories) {
+        Category category = categories.get(DEFAULT_CATEGORY_NAME.toLowerCase(Locale.ROOT));
+        if (category != null) {
+            return category;
+        }
+        return CategoryRegistry.intern(DEFAULT_CATEGORY_ID, DEFAULT_CATEGORY_NAME, "Прочие операции", "#DFE6E9");
+    }
+
+    private ImportReport importChunks(MappedByteBuffer content, Consumer<List<Expense>> expenseSink,
+                                      Consumer<List<Income>> incomeSink) throws IOException {
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : CategoryRegistry.getAll()) {
+            categories.putIfAbsent(category.getName().toLowerCase(Locale.ROOT), category);
+        }
+        Category defaultCategory = defaultCategory(categories);
+        String importId = String.valueOf(System.currentTimeMillis());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Куски забираются по порядку, пока следующие еще разбираются; в работе не больше
+            // двух кусков на поток, чтобы разобранные, но не переданные записи не копились в памяти
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            int start = 0;
+            int limit = content.limit();
+            int expenses = 0;
+            int incomes = 0;
+            int rejectedCount = 0;
+            List<RejectedLine> rejected = new ArrayList<>();
+            long firstLine = 1;
+            while (start < limit || !pending.isEmpty()) {
+                while (start < limit && pending.size() < threads * 2) {
+                    int end = Math.min(limit, start + CHUNK_SIZE);
+                    // Кусок заканчивается на переводе строки
+                    while (end < limit && content.get(end - 1) != '\n') {
+                        end++;
+                    }
+                    int chunkStart = start;
+                    int chunkEnd = end;
+                    pending.add(executor.submit(() -> parseChunk(content, chunkStart, chunkEnd,
+                            categories, defaultCategory, importId)));
+                    start = end;
+                }
+
+                Chunk chunk = pending.poll().get();
+                if (!chunk.expenses.isEmpty()) {
+                    expenseSink.accept(chunk.expenses);
+                }
+                if (!chunk.incomes.isEmpty()) {
+                    incomeSink.accept(chunk.incomes);
+                }
+                expenses += chunk.expenses.size();
+                incomes += chunk.incomes.size();
+                rejectedCount += chunk.rejected.size();
+                for (RejectedLine line : chunk.rejected) {
+                    if (rejected.size() < MAX_REPORTED_LINES) {
+                        rejected.add(new RejectedLine(firstLine + line.lineNumber(), line.line(), line.reason()));
+                    }
+                }
+                firstLine += chunk.lineCount;
+            }
+            return new ImportReport(expenses, incomes, rejectedCount, rejected);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Импорт прерван", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка разбора выписки: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Номера строк в куске считаются с нуля и сдвигаются при сборке отчета
+    private Chunk parseChunk(MappedByteBuffer content, int start, int end, Map<String, Category> categories,
+                             Category defaultCategory, String importId) {
+        byte[] bytes = new byte[end - start];
+        content.slice(start, end - start).get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+
+        Chunk chunk = new Chunk();
+        int position = 0;
+        if (start == 0 && text.startsWith("\uFEFF")) {
+            position = 1;
+        }
+        int lineIndex = 0;
+        while (position < text.length()) {
+            int lineEnd = text.indexOf('\n', position);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            String line = text.substring(position, lineEnd > position && text.charAt(lineEnd - 1) == '\r'
+                    ? lineEnd - 1 : lineEnd);
+            // Начало куска и позиция строки в нем дают уникальный в пределах импорта ID
+            long offset = (long) start + position;
+            position = lineEnd + 1;
+
+            boolean header = start == 0 && lineIndex == 0 && mapping.hasHeader();
+            if (!header && !line.isBlank()) {
+                try {
+                    parseLine(line, offset, categories, defaultCategory, importId, chunk);
+                } catch (IllegalArgumentException | DateTimeParseException | ArithmeticException e) {
+                    chunk.rejected.add(new RejectedLine(lineIndex, line, describe(e)));
+                }
+            }
+            lineIndex++;
+        }
+        chunk.lineCount = lineIndex;
+        return chunk;
+    }
+
+    private void parseLine(String line, long offset, Map<String, Category> categories, Category defaultCategory,
+                           String importId, Chunk chunk) {
+        List<String> fields = split(line);
+        // В выписке немного различных дат, разбор форматтером дорог - кэшируем по строке
+        String dateText = field(fields, mapping.dateColumn());
+        LocalDate date = chunk.dates.get(dateText);
+        if (date == null) {
+            date = LocalDate.parse(dateText, dateFormatter);
+            chunk.dates.put(dateText, date);
+        }
+        Money amount = parseAmount(field(fields, mapping.amountColumn()));
+        String name = field(fields, mapping.nameColumn());
+        String description = mapping.descriptionColumn() >= 0 ? field(fields, mapping.descriptionColumn()) : "";
+        Category category = defaultCategory;
+        if (mapping.categoryColumn() >= 0) {
+            category = categories.getOrDefault(field(fields, mapping.categoryColumn()).toLowerCase(Locale.ROOT),
+                    defaultCategory);
+        }
+
+        if (amount.isNegative()) {
+            Expense expense = new Expense("EXP_" + importId + "_" + offset, name, amount, date, description,
+                    category, ExpenseType.VARIABLE, null);
+            if (!expense.isValid()) {
+                throw new IllegalArgumentException("Некорректные данные операции");
+            }
+            chunk.expenses.add(expense);
+        } else {
+            Income income = new Income("INC_" + importId + "_" + offset, name, amount, date, description,
+                    category, IncomeSource.OTHER, null);
+            if (!income.isValid()) {
+                throw new IllegalArgumentException("Некорректные данные операции");
+            }
+            chunk.incomes.add(income);
+        }
+    }
+
+    private String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) {
+            throw new IllegalArgumentException("Нет столбца " + (column + 1));
+        }
+        return fields.get(column).trim();
+    }
+
+    // Допускает пробелы между разрядами и запятую как десятичный разделитель
+    private Money parseAmount(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == ',') {
+                digits.append('.');
+            } else if (!Character.isWhitespace(ch) && !Character.isSpaceChar(ch)) {
+                digits.append(ch);
+            }
+        }
+        Money amount;
+        try {
+            amount = Money.of(new BigDecimal(digits.toString()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная сумма: " + value);
+        }
+        if (amount.signum() == 0) {
+            throw new IllegalArgumentException("Нулевая сумма");
+        }
+        return amount;
+    }
+
+    private List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == mapping.delimiter()) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private String describe(RuntimeException e) {
+        if (e instanceof DateTimeParseException parseException) {
+            return "Некорректная дата: " + parseException.getParsedString();
+        }
+        if (e instanceof ArithmeticException) {
+            return "Сумма вне допустимого диапазона";
+        }
+        return e.getMessage();
+    }
+
+    private static class Chunk {
+        private final List<Expense> expenses = new ArrayList<>();
+        private final List<Income> incomes = new ArrayList<>();
+        private final List<RejectedLine> rejected = new ArrayList<>();
+        private final Map<String, LocalDate> dates = new HashMap<>();
+        private int lineCount;
+    }
+}
@@ -2,19 +2,31 @@ package financialmanager.persistence;
 
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import financialmanager.model.entities.Category;
 import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.FinancialOperation;
 import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
 import financialmanager.model.enums.ExpenseType;
+import financialmanager.model.managers.CategoryRegistry;
 import financialmanager.model.enums.IncomeSource;
 import financialmanager.model.repositories.ExpenseRepository;
+import financialmanager.model.repositories.FinancialRepository;
 import financialmanager.model.repositories.IncomeRepository;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class JsonDataManager {
     private final Gson gson;
@@ -22,64 +34,150 @@ public class JsonDataManager {
     private static final String EXPENSES_FILE = DATA_DIR + "/expenses.json";
     private static final String INCOMES_FILE = DATA_DIR + "/incomes.json";
     private static final String CATEGORIES_FILE = DATA_DIR + "/categories.json";
+    // Единые двоичные снимки прежних версий: только читаются, запись идет помесячно
+    private static final String EXPENSES_SNAPSHOT = DATA_DIR + "/expenses.bin";
+    private static final String INCOMES_SNAPSHOT = DATA_DIR + "/incomes.bin";
+    private static final int LOAD_BATCH_SIZE = 1024;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    // Формат снимков: binary (по умолчанию) или json, -Dfinancialmanager.snapshot=json
+    private final boolean binarySnapshots = !"json".equals(System.getProperty("financialmanager.snapshot", "binary"));
+    // Сжатие файлов данных (-Dfinancialmanager.compression=gzip|deflate); экспорт всегда без сжатия
+    private final StorageCodec codec = StorageCodecs.configured();
+
+    private final SegmentedSnapshot<Expense> expenseSegments;
+    private final SegmentedSnapshot<Income> incomeSegments;
+
+    // Журналы открываются в потоке загрузки, а закрываются при выходе
+    private volatile WriteAheadLog<Expense> expenseLog;
+    private volatile WriteAheadLog<Income> incomeLog;
 
     public JsonDataManager() {
-        this.gson = new GsonBuilder()
-                .setPrettyPrinting()
+        // По умолчанию компактный JSON; -Dfinancialmanager.json.pretty=true для читаемого формата
+        GsonBuilder builder = new GsonBuilder();
+        if (Boolean.getBoolean("financialmanager.json.pretty")) {
+            builder.setPrettyPrinting();
+        }
+        this.gson = builder
                 .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
                 .registerTypeAdapter(Category.class, new CategoryAdapter())
+                .registerTypeAdapter(Money.class, new MoneyAdapter())
                 .registerTypeAdapter(ExpenseType.class, new ExpenseTypeAdapter())
                 .registerTypeAdapter(IncomeSource.class, new IncomeSourceAdapter())
                 .create();
         createDataDirectory();
+        try {
+            this.expenseSegments = new SegmentedSnapshot<>(Path.of(DATA_DIR, "expenses"), BinarySnapshot.EXPENSES);
+            this.incomeSegments = new SegmentedSnapshot<>(Path.of(DATA_DIR, "incomes"), BinarySnapshot.INCOMES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать директорию данных", e);
+        }
     }
 
     public void saveExpenses(ExpenseRepository repository) throws IOException {
-        List<Expense> expenses = repository.findAll();
-        saveToFile(expenses, EXPENSES_FILE);
-        System.out.println("✓ Сохранено расходов: " + expenses.size());
+        if (expenseLog != null) {
+            // Изменения уже в журнале: достаточно сбросить его на диск. Полные снимки журнал
+            // делает сам по числу записей и времени, иначе каждое сохранение стоило бы O(всех данных)
+            expenseLog.flush();
+            System.out.println("✓ Сохранено расходов: " + repository.count());
+            return;
+        }
+        storeExpenses(repository);
+        System.out.println("✓ Сохранено расходов: " + repository.count());
     }
 
     public void saveIncomes(IncomeRepository repository) throws IOException {
-        List<Income> incomes = repository.findAll();
-        saveToFile(incomes, INCOMES_FILE);
-        System.out.println("✓ Сохранено доходов: " + incomes.size());
+        if (incomeLog != null) {
+            incomeLog.flush();
+            System.out.println("✓ Сохранено доходов: " + repository.count());
+            return;
+        }
+        storeIncomes(repository);
+        System.out.println("✓ Сохранено доходов: " + repository.count());
+    }
+
+    // Открывает журнал расходов: воспроизводит изменения после последнего снимка
+    public WriteAheadLog<Expense> openExpenseLog(ExpenseRepository repository) throws IOException {
+        expenseLog = new WriteAheadLog<>(Path.of(DATA_DIR), "expenses", gson, Expense.class,
+                repository, () -> storeExpenses(repository));
+        int replayed = expenseLog.open();
+        if (replayed > 0) {
+            System.out.println("✓ Восстановлено из журнала расходов: " + replayed);
+        }
+        return expenseLog;
+    }
+
+    public WriteAheadLog<Income> openIncomeLog(IncomeRepository repository) throws IOException {
+        incomeLog = new WriteAheadLog<>(Path.of(DATA_DIR), "incomes", gson, Income.class,
+                repository, () -> storeIncomes(repository));
+        int replayed = incomeLog.open();
+        if (replayed > 0) {
+            System.out.println("✓ Восстановлено из журнала доходов: " + replayed);
+        }
+        return incomeLog;
+    }
+
+    // Дописывает на диск хвост журналов и закрывает их; вызывается при выходе
+    public void closeLogs() throws IOException {
+        if (expenseLog != null) {
+            expenseLog.close();
+        }
+        if (incomeLog != null) {
+            incomeLog.close();
+        }
+    }
+
+    // Постоянные хранилища (месячное и отображаемое в память) пишут свои файлы сами,
+    // остальные сохраняются целиком
+    private void storeExpenses(ExpenseRepository repository) throws IOException {
+        if (flushIfSupported(repository)) {
+            return;
+        }
+        saveOperations(repository.findAll(), Expense.class, expenseSegments, EXPENSES_FILE);
+    }
+
+    private void storeIncomes(IncomeRepository repository) throws IOException {
+        if (flushIfSupported(repository)) {
+            return;
+        }
+        saveOperations(repository.findAll(), Income.class, incomeSegments, INCOMES_FILE);
+    }
+
+    private boolean flushIfSupported(Object repository) throws IOException {
+        if (repository instanceof Flushable flushable) {
+            flushable.flush();
+            return true;
+        }
+        return false;
     }
 
     public void saveCategories(List<Category> categories) throws IOException {
-        saveToFile(categories, CATEGORIES_FILE);
+        saveToFile(categories, Category.class, CATEGORIES_FILE, codec);
         System.out.println("✓ Сохранено категорий: " + categories.size());
     }
 
     public void loadExpenses(ExpenseRepository repository) throws IOException {
-        Type expenseListType = new TypeToken<List<Expense>>(){}.getType();
-        List<Expense> expenses = loadFromFile(EXPENSES_FILE, expenseListType);
-
-        if (expenses != null && !expenses.isEmpty()) {
-            for (Expense expense : expenses) {
-                // Проверяем, существует ли уже такая запись
-                if (!repository.exists(expense.getId())) {
-                    repository.add(expense);
-                }
-            }
-            System.out.println("✓ Загружено расходов: " + expenses.size());
+        long started = System.nanoTime();
+        int loaded = loadOperations(EXPENSES_FILE, EXPENSES_SNAPSHOT, expenseSegments, Expense.class,
+                BinarySnapshot.EXPENSES, batch -> addMissing(repository, batch));
+
+        if (loaded > 0) {
+            flushIfSupported(repository);
+            System.out.println("✓ Загружено расходов: " + loaded + formatRate(loaded, started));
         } else {
             System.out.println("✗ Файл расходов пуст или не существует");
         }
     }
 
     public void loadIncomes(IncomeRepository repository) throws IOException {
-        Type incomeListType = new TypeToken<List<Income>>(){}.getType();
-        List<Income> incomes = loadFromFile(INCOMES_FILE, incomeListType);
-
-        if (incomes != null && !incomes.isEmpty()) {
-            for (Income income : incomes) {
-                // Проверяем, существует ли уже такая запись
-                if (!repository.exists(income.getId())) {
-                    repository.add(income);
-                }
-            }
-            System.out.println("✓ Загружено доходов: " + incomes.size());
+        long started = System.nanoTime();
+        int loaded = loadOperations(INCOMES_FILE, INCOMES_SNAPSHOT, incomeSegments, Income.class,
+                BinarySnapshot.INCOMES, batch -> addMissing(repository, batch));
+
+        if (loaded > 0) {
+            flushIfSupported(repository);
+            System.out.println("✓ Загружено доходов: " + loaded + formatRate(loaded, started));
         } else {
             System.out.println("✗ Файл доходов пуст или не существует");
         }
@@ -94,31 +192,175 @@ public class JsonDataManager {
             return categories;
         } else {
             System.out.println("✗ Файл категорий пуст. Использую категории по умолчанию");
-            return getDefaultCategories();
+            List<Category> defaults = getDefaultCategories();
+            defaults.replaceAll(CategoryRegistry::intern);
+            return defaults;
         }
     }
 
+    // Преобразует текущие данные расходов и доходов в JSON (или обратно в двоичные сегменты)
+    public void convertToJson() throws IOException {
+        convert(EXPENSES_FILE, EXPENSES_SNAPSHOT, expenseSegments, Expense.class, BinarySnapshot.EXPENSES, true);
+        convert(INCOMES_FILE, INCOMES_SNAPSHOT, incomeSegments, Income.class, BinarySnapshot.INCOMES, true);
+        System.out.println("✓ Данные преобразованы в JSON");
+    }
+
+    public void convertToBinary() throws IOException {
+        convert(EXPENSES_FILE, EXPENSES_SNAPSHOT, expenseSegments, Expense.class, BinarySnapshot.EXPENSES, false);
+        convert(INCOMES_FILE, INCOMES_SNAPSHOT, incomeSegments, Income.class, BinarySnapshot.INCOMES, false);
+        System.out.println("✓ Данные преобразованы в двоичный снимок");
+    }
+
     public void exportExpensesToJson(List<Expense> expenses, String filename) throws IOException {
-        saveToFile(expenses, filename);
+        saveToFile(expenses, Expense.class, filename, StorageCodecs.NONE);
         System.out.println("✓ Экспортировано расходов в: " + filename);
     }
 
     public void exportIncomesToJson(List<Income> incomes, String filename) throws IOException {
-        saveToFile(incomes, filename);
+        saveToFile(incomes, Income.class, filename, StorageCodecs.NONE);
         System.out.println("✓ Экспортировано доходов в: " + filename);
     }
 
-    private <T> void saveToFile(T data, String filename) throws IOException {
-        // Создаем директорию если не существует
+    // Записи сериализуются по одной прямо в буферизованный временный файл,
+    // который после fsync атомарно подменяет старый
+    private <T> void saveToFile(Iterable<T> data, Class<T> type, String filename,
+                                StorageCodec codec) throws IOException {
+        AtomicFiles.write(Path.of(filename), codec, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            TypeAdapter<T> adapter = gson.getAdapter(type);
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginArray();
+            for (T item : data) {
+                adapter.write(jsonWriter, item);
+            }
+            jsonWriter.endArray();
+            jsonWriter.flush();
+        });
+    }
+
+    private <T extends FinancialOperation> int streamFromSnapshot(String filename, BinarySnapshot<T> format,
+                                                                  Consumer<List<T>> batchConsumer) throws IOException {
+        try (InputStream in = StorageCodecs.open(new FileInputStream(filename))) {
+            return format.read(in, LOAD_BATCH_SIZE, batchConsumer);
+        }
+    }
+
+    // Загружает операции из самого свежего источника: месячных сегментов, JSON
+    // или единого двоичного снимка прежних версий
+    private <T extends FinancialOperation> int loadOperations(String jsonFile, String snapshotFile,
+                                                              SegmentedSnapshot<T> segments, Class<T> type,
+                                                              BinarySnapshot<T> format,
+                                                              Consumer<List<T>> batchConsumer) throws IOException {
+        long segmentsModified = segments.lastModified();
+        long jsonModified = new File(jsonFile).lastModified();
+        long snapshotModified = new File(snapshotFile).lastModified();
+        if (segmentsModified > 0 && segmentsModified >= jsonModified && segmentsModified >= snapshotModified) {
+            return segments.load(batchConsumer);
+        }
+        if (snapshotModified > 0 && snapshotModified >= jsonModified) {
+            return streamFromSnapshot(snapshotFile, format, batchConsumer);
+        }
+        return streamFromFile(jsonFile, type, batchConsumer);
+    }
+
+    // Двоичный формат переписывает только изменившиеся месяцы, JSON - весь файл
+    private <T extends FinancialOperation> void saveOperations(List<T> operations, Class<T> type,
+                                                               SegmentedSnapshot<T> segments,
+                                                               String jsonFile) throws IOException {
+        if (binarySnapshots) {
+            segments.save(operations);
+        } else {
+            saveToFile(operations, type, jsonFile, codec);
+        }
+    }
+
+    private <T extends FinancialOperation> void convert(String jsonFile, String snapshotFile,
+                                                        SegmentedSnapshot<T> segments, Class<T> type,
+                                                        BinarySnapshot<T> format, boolean toJson) throws IOException {
+        List<T> operations = new ArrayList<>();
+        int loaded = loadOperations(jsonFile, snapshotFile, segments, type, format, operations::addAll);
+        if (loaded == 0) {
+            return;
+        }
+        if (toJson) {
+            saveToFile(operations, type, jsonFile, codec);
+        } else {
+            segments.save(operations);
+        }
+    }
+
+    // Читает массив JSON поэлементно и передает записи пачками по LOAD_BATCH_SIZE,
+    // не собирая весь файл в один список
+    private <T> int streamFromFile(String filename, Class<T> type, Consumer<List<T>> batchConsumer) throws IOException {
         File file = new File(filename);
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        List<T> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        int loaded = 0;
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(StorageCodecs.open(new FileInputStream(file)), StandardCharsets.UTF_8),
+                READ_BUFFER_SIZE))) {
+            if (reader.peek() == JsonToken.NULL) {
+                return 0;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                T item = adapter.read(reader);
+                if (item == null) {
+                    continue;
+                }
+                batch.add(item);
+                loaded++;
+                if (batch.size() == LOAD_BATCH_SIZE) {
+                    batchConsumer.accept(batch);
+                    batch.clear();
+                }
+            }
+            reader.endArray();
+        } catch (IllegalStateException e) {
+            throw new JsonParseException("Некорректный формат файла " + filename, e);
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
         }
+        return loaded;
+    }
+
+    private <T extends FinancialOperation> void addMissing(FinancialRepository<T> repository, List<T> batch) {
+        // Пачка без уже сохраненных и повторяющихся ID добавляется одним addAll
+        Set<String> ids = new HashSet<>();
+        List<T> missing = new ArrayList<>(batch.size());
+        for (T operation : batch) {
+            if (ids.add(operation.getId()) && !repository.exists(operation.getId())) {
+                missing.add(operation);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        try {
+            repository.addAll(missing);
+        } catch (IllegalArgumentException e) {
+            // addAll ничего не применил: по одной, чтобы одна плохая запись не отменила остальные
+            for (T operation : missing) {
+                try {
+                    repository.add(operation);
+                } catch (IllegalArgumentException rejected) {
+                    System.err.println("✗ Пропущена операция '" + operation.getId() + "': " + rejected.getMessage());
+                }
+            }
+        }
+    }
 
-        try (Writer writer = new FileWriter(filename)) {
-            gson.toJson(data, writer);
+    private String formatRate(int records, long startedNanos) {
+        double seconds = (System.nanoTime() - startedNanos) / 1_000_000_000.0;
+        if (seconds <= 0) {
+            return "";
         }
+        return String.format(" (%.0f записей/с)", records / seconds);
     }
 
     private <T> T loadFromFile(String filename, Type type) throws IOException {
@@ -126,7 +368,8 @@ public class JsonDataManager {
         if (!file.exists() || file.length() == 0) {
             return null;
         }
-        try (Reader reader = new FileReader(filename)) {
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                StorageCodecs.open(new FileInputStream(file)), StandardCharsets.UTF_8))) {
             return gson.fromJson(reader, type);
         }
     }
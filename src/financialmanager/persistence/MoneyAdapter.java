@@ -0,0 +1,20 @@
+package financialmanager.persistence;
+
+import com.google.gson.*;
+import financialmanager.model.entities.Money;
+
+import java.lang.reflect.Type;
+
+public class MoneyAdapter implements JsonSerializer<Money>, JsonDeserializer<Money> {
+    @Override
+    public JsonElement serialize(Money money, Type typeOfSrc, JsonSerializationContext context) {
+        return new JsonPrimitive(money.toBigDecimal());
+    }
+
+    @Override
+    public Money deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
+            throws JsonParseException {
+        // Старые файлы хранят сумму как число с плавающей точкой ("amount": -4000.0)
+        return Money.of(json.getAsBigDecimal());
+    }
+}
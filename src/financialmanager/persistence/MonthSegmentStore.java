@@ -0,0 +1,208 @@
+package financialmanager.persistence;
+
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.repositories.PartitionedFinancialRepository.MonthSummary;
+import financialmanager.model.repositories.PartitionedFinancialRepository.SegmentStore;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Месячные сегменты в директории: <год>-<месяц>.bin в формате BinarySnapshot
+// и файл manifest со сводками месяцев. Сводка считается действительной, пока размер
+// и время изменения сегмента совпадают с записанными; иначе она пересчитывается по сегменту.
+// Рядом с сегментом лежит <год>-<месяц>.ids со списком ID его операций, записанный после сегмента.
+public class MonthSegmentStore<T extends FinancialOperation> implements SegmentStore<T> {
+    private static final String SEGMENT_SUFFIX = ".bin";
+    private static final String IDS_SUFFIX = ".ids";
+    private static final String MANIFEST_FILE = "manifest";
+    private static final int LOAD_BATCH_SIZE = 1024;
+
+    private final Path directory;
+    private final BinarySnapshot<T> format;
+    private final StorageCodec codec;
+    private final Map<YearMonth, ManifestEntry> manifest = new TreeMap<>();
+
+    private record ManifestEntry(MonthSummary summary, long size, long modified) {
+    }
+
+    public MonthSegmentStore(Path directory, BinarySnapshot<T> format) throws IOException {
+        this(directory, format, StorageCodecs.configured());
+    }
+
+    // Сегменты пишутся через codec, а читаются в любом формате
+    public MonthSegmentStore(Path directory, BinarySnapshot<T> format, StorageCodec codec) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "Директория не может быть null");
+        this.format = Objects.requireNonNull(format, "Формат не может быть null");
+        this.codec = Objects.requireNonNull(codec, "Кодек не может быть null");
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public synchronized Map<YearMonth, MonthSummary> loadSummaries() throws IOException {
+        manifest.clear();
+        Map<YearMonth, ManifestEntry> recorded = readManifest();
+        boolean healed = false;
+
+        for (YearMonth month : listSegments()) {
+            Path segment = segmentPath(month);
+            ManifestEntry entry = recorded.get(month);
+            if (entry == null || entry.size() != Files.size(segment)
+                    || entry.modified() != Files.getLastModifiedTime(segment).toMillis()) {
+                List<T> operations = load(month);
+                entry = describe(month, summarize(operations));
+                writeIds(month, operations);
+                healed = true;
+            }
+            manifest.put(month, entry);
+        }
+        if (healed || recorded.size() != manifest.size()) {
+            writeManifest();
+        }
+
+        Map<YearMonth, MonthSummary> summaries = new TreeMap<>();
+        manifest.forEach((month, entry) -> summaries.put(month, entry.summary()));
+        return summaries;
+    }
+
+    // Списки ID старше своего сегмента (сбой между записями) или отсутствующие строятся заново
+    @Override
+    public synchronized Map<String, YearMonth> loadIndex() throws IOException {
+        Map<String, YearMonth> index = new HashMap<>();
+        for (Map.Entry<YearMonth, ManifestEntry> entry : manifest.entrySet()) {
+            YearMonth month = entry.getKey();
+            Path ids = idsPath(month);
+            if (!Files.exists(ids) || Files.getLastModifiedTime(ids).toMillis() < entry.getValue().modified()) {
+                writeIds(month, load(month));
+            }
+            for (String id : Files.readAllLines(ids, StandardCharsets.UTF_8)) {
+                if (!id.isEmpty()) {
+                    index.put(id, month);
+                }
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public List<T> load(YearMonth month) throws IOException {
+        List<T> operations = new ArrayList<>();
+        try (InputStream in = StorageCodecs.open(new FileInputStream(segmentPath(month).toFile()))) {
+            format.read(in, LOAD_BATCH_SIZE, operations::addAll);
+        }
+        return operations;
+    }
+
+    @Override
+    public synchronized void save(YearMonth month, Collection<T> operations, MonthSummary summary) throws IOException {
+        Path segment = segmentPath(month);
+        if (operations.isEmpty()) {
+            Files.deleteIfExists(segment);
+            Files.deleteIfExists(idsPath(month));
+            manifest.remove(month);
+        } else {
+            List<T> snapshot = new ArrayList<>(operations);
+            AtomicFiles.write(segment, codec, out -> format.write(snapshot, out));
+            manifest.put(month, describe(month, summary));
+            writeIds(month, snapshot);
+        }
+        writeManifest();
+    }
+
+    // Время последней записи сегментов; 0, если хранилище еще не записывалось
+    public long lastModified() throws IOException {
+        Path path = directory.resolve(MANIFEST_FILE);
+        return Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : 0;
+    }
+
+    private ManifestEntry describe(YearMonth month, MonthSummary summary) throws IOException {
+        Path segment = segmentPath(month);
+        return new ManifestEntry(summary, Files.size(segment), Files.getLastModifiedTime(segment).toMillis());
+    }
+
+    static MonthSummary summarize(Collection<? extends FinancialOperation> operations) {
+        long total = 0;
+        long absoluteTotal = 0;
+        for (FinancialOperation operation : operations) {
+            long amount = operation.getMoney().getMinorUnits();
+            total += amount;
+            absoluteTotal += Math.abs(amount);
+        }
+        return new MonthSummary(operations.size(), total, absoluteTotal);
+    }
+
+    private List<YearMonth> listSegments() throws IOException {
+        List<YearMonth> months = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(file -> file.endsWith(SEGMENT_SUFFIX))
+                    .forEach(file -> {
+                        try {
+                            months.add(YearMonth.parse(file.substring(0, file.length() - SEGMENT_SUFFIX.length())));
+                        } catch (DateTimeParseException ignored) {
+                            // Чужой файл
+                        }
+                    });
+        }
+        months.sort(null);
+        return months;
+    }
+
+    // Строки вида: <месяц> <количество> <сумма> <сумма модулей> <размер> <время изменения>
+    private Map<YearMonth, ManifestEntry> readManifest() throws IOException {
+        Map<YearMonth, ManifestEntry> entries = new HashMap<>();
+        Path path = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length != 6) {
+                continue;
+            }
+            try {
+                MonthSummary summary = new MonthSummary(Integer.parseInt(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+                entries.put(YearMonth.parse(fields[0]),
+                        new ManifestEntry(summary, Long.parseLong(fields[4]), Long.parseLong(fields[5])));
+            } catch (NumberFormatException | DateTimeParseException ignored) {
+                // Поврежденная строка: сводка будет пересчитана по сегменту
+            }
+        }
+        return entries;
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder content = new StringBuilder();
+        manifest.forEach((month, entry) -> content.append(month).append(' ')
+                .append(entry.summary().count()).append(' ')
+                .append(entry.summary().total()).append(' ')
+                .append(entry.summary().absoluteTotal()).append(' ')
+                .append(entry.size()).append(' ')
+                .append(entry.modified()).append('\n'));
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        AtomicFiles.write(directory.resolve(MANIFEST_FILE), out -> out.write(bytes));
+    }
+
+    private void writeIds(YearMonth month, Collection<T> operations) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (T operation : operations) {
+            content.append(operation.getId()).append('\n');
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        AtomicFiles.write(idsPath(month), out -> out.write(bytes));
+    }
+
+    private Path segmentPath(YearMonth month) {
+        return directory.resolve(month + SEGMENT_SUFFIX);
+    }
+
+    private Path idsPath(YearMonth month) {
+        return directory.resolve(month + IDS_SUFFIX);
+    }
+}
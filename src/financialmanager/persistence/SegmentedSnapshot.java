@@ -0,0 +1,115 @@
+package financialmanager.persistence;
+
+import financialmanager.model.entities.FinancialOperation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Снимок операций, разбитый на месячные сегменты MonthSegmentStore. Для каждого месяца
+// запоминается хэш содержимого на момент последней записи или чтения; при сохранении
+// сериализуются и пишутся только месяцы с изменившимся хэшем, пропавшие месяцы удаляются.
+// Хэш считается по полям в памяти, поэтому ловит и правки, сделанные прямо в объектах.
+class SegmentedSnapshot<T extends FinancialOperation> {
+    private final MonthSegmentStore<T> store;
+    private final BinarySnapshot<T> format;
+    private final Map<YearMonth, Long> savedHashes = new HashMap<>();
+    // Известно ли, какие месяцы сейчас лежат на диске
+    private boolean synced;
+
+    SegmentedSnapshot(Path directory, BinarySnapshot<T> format) throws IOException {
+        this.store = new MonthSegmentStore<>(directory, format);
+        this.format = format;
+    }
+
+    long lastModified() throws IOException {
+        return store.lastModified();
+    }
+
+    // Передает операции помесячно; возвращает число записей
+    synchronized int load(Consumer<List<T>> batchConsumer) throws IOException {
+        savedHashes.clear();
+        int loaded = 0;
+        for (YearMonth month : store.loadSummaries().keySet()) {
+            List<T> operations = store.load(month);
+            savedHashes.put(month, hash(operations));
+            loaded += operations.size();
+            batchConsumer.accept(operations);
+        }
+        synced = true;
+        return loaded;
+    }
+
+    // Возвращает число переписанных месяцев
+    synchronized int save(Collection<T> operations) throws IOException {
+        if (!synced) {
+            // Данные пришли не из сегментов: все лежащие на диске месяцы считаются устаревшими
+            for (YearMonth month : store.loadSummaries().keySet()) {
+                savedHashes.put(month, null);
+            }
+            synced = true;
+        }
+
+        Map<YearMonth, List<T>> months = new HashMap<>();
+        for (T operation : operations) {
+            months.computeIfAbsent(YearMonth.from(operation.getDate()), month -> new ArrayList<>()).add(operation);
+        }
+
+        int written = 0;
+        for (Map.Entry<YearMonth, List<T>> entry : months.entrySet()) {
+            long hash = hash(entry.getValue());
+            Long saved = savedHashes.get(entry.getKey());
+            if (saved != null && saved == hash) {
+                continue;
+            }
+            store.save(entry.getKey(), entry.getValue(), MonthSegmentStore.summarize(entry.getValue()));
+            savedHashes.put(entry.getKey(), hash);
+            written++;
+        }
+
+        Set<YearMonth> removed = new HashSet<>(savedHashes.keySet());
+        removed.removeAll(months.keySet());
+        for (YearMonth month : removed) {
+            store.save(month, List.of(), MonthSegmentStore.summarize(List.of()));
+            savedHashes.remove(month);
+            written++;
+        }
+        return written;
+    }
+
+    // Сумма хэшей записей не зависит от порядка операций в репозитории
+    private long hash(List<T> operations) {
+        long hash = operations.size();
+        for (T operation : operations) {
+            hash += hash(operation);
+        }
+        return hash;
+    }
+
+    private long hash(T operation) {
+        long hash = operation.getId().hashCode();
+        hash = hash * 31 + Objects.hashCode(operation.getName());
+        hash = hash * 31 + Objects.hashCode(operation.getDescription());
+        hash = hash * 31 + format.typeOf(operation).hashCode();
+        hash = hash * 31 + operation.getCategory().getId().hashCode();
+        hash = hash * 31 + Objects.hashCode(operation.getCreditCardId());
+        hash = hash * 31 + operation.getDate().toEpochDay();
+        hash = hash * 31 + operation.getMoney().getMinorUnits();
+        // Перемешивание битов (финализатор MurmurHash3), чтобы сумма не теряла различия
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,18 @@
+package financialmanager.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Потоковый кодек файлов данных. Закрытие потока из compress завершает сжатие
+// и закрывает исходный поток.
+public interface StorageCodec {
+    String name();
+
+    // Узнает свой формат по первым байтам файла
+    boolean matches(byte[] header, int length);
+
+    OutputStream compress(OutputStream out) throws IOException;
+
+    InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,156 @@
+package financialmanager.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Реестр кодеков сжатия. Кодек для записи задается -Dfinancialmanager.compression=none|gzip|deflate
+// (или именем зарегистрированного кодека), при чтении формат определяется по первым байтам файла,
+// поэтому сжатые и несжатые файлы читаются независимо от настройки.
+public class StorageCodecs {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = 4;
+
+    public static final StorageCodec NONE = new StorageCodec() {
+        @Override
+        public String name() {
+            return "none";
+        }
+
+        @Override
+        public boolean matches(byte[] header, int length) {
+            return true;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return in;
+        }
+    };
+
+    public static final StorageCodec GZIP = new StorageCodec() {
+        @Override
+        public String name() {
+            return "gzip";
+        }
+
+        @Override
+        public boolean matches(byte[] header, int length) {
+            return length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    };
+
+    // Поток zlib: быстрее gzip за счет уровня сжатия BEST_SPEED и отсутствия CRC32
+    public static final StorageCodec DEFLATE = new StorageCodec() {
+        @Override
+        public String name() {
+            return "deflate";
+        }
+
+        @Override
+        public boolean matches(byte[] header, int length) {
+            // Заголовок zlib: метод 8 и контрольная сумма первых двух байтов кратна 31
+            return length >= 2 && (header[0] & 0x0F) == 8
+                    && ((header[0] & 0xFF) << 8 | (header[1] & 0xFF)) % 31 == 0;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+    // Порядок проверки при чтении; NONE подходит любому файлу и проверяется последним
+    private static final List<StorageCodec> codecs = new CopyOnWriteArrayList<>(List.of(GZIP, DEFLATE));
+
+    private StorageCodecs() {
+    }
+
+    // Подключает дополнительный кодек, например более быстрый из внешней библиотеки
+    public static void register(StorageCodec codec) {
+        Objects.requireNonNull(codec, "Кодек не может быть null");
+        codecs.add(0, codec);
+    }
+
+    public static StorageCodec forName(String name) {
+        if (NONE.name().equals(name)) {
+            return NONE;
+        }
+        for (StorageCodec codec : codecs) {
+            if (codec.name().equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный кодек сжатия: " + name);
+    }
+
+    // Кодек для записи из настройки financialmanager.compression
+    public static StorageCodec configured() {
+        return forName(System.getProperty("financialmanager.compression", NONE.name()));
+    }
+
+    // Определяет формат по первым байтам и возвращает поток уже распакованных данных
+    public static InputStream open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(HEADER_SIZE);
+        byte[] header = new byte[HEADER_SIZE];
+        int length = buffered.readNBytes(header, 0, HEADER_SIZE);
+        buffered.reset();
+        for (StorageCodec codec : codecs) {
+            if (codec.matches(header, length)) {
+                return codec.decompress(buffered);
+            }
+        }
+        return buffered;
+    }
+}
@@ -1,35 +1,48 @@
 package financialmanager.persistence;
 
-import financialmanager.model.repositories.ExpenseRepository;
-import financialmanager.model.repositories.IncomeRepository;
-
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 
 public class WindowCloseListener extends WindowAdapter {
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final AutoSaveService autoSaveService;
     private final JsonDataManager dataManager;
-    private final ExpenseRepository expenseRepository;
-    private final IncomeRepository incomeRepository;
+    // Меняется только в потоке Swing
+    private boolean closing;
 
-    public WindowCloseListener(JsonDataManager dataManager,
-                               ExpenseRepository expenseRepository,
-                               IncomeRepository incomeRepository) {
+    public WindowCloseListener(AutoSaveService autoSaveService, JsonDataManager dataManager) {
+        this.autoSaveService = autoSaveService;
         this.dataManager = dataManager;
-        this.expenseRepository = expenseRepository;
-        this.incomeRepository = incomeRepository;
     }
 
     @Override
     public void windowClosing(WindowEvent e) {
+        // Окно скрываем сразу; сохранение и закрытие журналов идут не в потоке Swing
+        e.getWindow().setVisible(false);
+        if (closing) {
+            return;
+        }
+        closing = true;
+        Thread shutdown = new Thread(this::saveAndExit, "shutdown");
+        shutdown.start();
+    }
+
+    private void saveAndExit() {
         System.out.println("\n=== СОХРАНЕНИЕ ДАННЫХ ===");
-        try {
-            dataManager.saveExpenses(expenseRepository);
-            dataManager.saveIncomes(incomeRepository);
+        if (autoSaveService.shutdown(SHUTDOWN_TIMEOUT_MS)) {
             System.out.println("✓ Данные сохранены");
-        } catch (Exception ex) {
-            System.err.println("✗ Ошибка сохранения: " + ex.getMessage());
+        } else {
+            System.err.println("✗ Сохранение не завершилось за " + SHUTDOWN_TIMEOUT_MS / 1000 + " с");
+        }
+        // Без этого теряется хвост журнала, еще не сброшенный на диск
+        try {
+            dataManager.closeLogs();
+        } catch (IOException ex) {
+            System.err.println("✗ Ошибка закрытия журнала изменений: " + ex.getMessage());
         }
         System.out.println("Выход...");
         System.exit(0);
     }
-}
\ No newline at end of file
+}
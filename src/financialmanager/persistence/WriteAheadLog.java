@@ -0,0 +1,299 @@
+package financialmanager.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.repositories.FinancialRepository;
+import financialmanager.service.OperationJournal;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Журнал упреждающей записи: каждое изменение дописывается строкой JSON в текущий сегмент
+// (<имя>-<поколение>.wal), fsync выполняется пачками раз в FLUSH_INTERVAL_MS.
+// Снимок переключает журнал на новый сегмент, сохраняет текущее состояние репозитория
+// и удаляет закрытые сегменты. При запуске сегменты воспроизводятся поверх снимка.
+// Снимок может уже содержать часть изменений из нового сегмента: записи хранят полное
+// состояние операции, поэтому их повторное применение дает тот же результат.
+public class WriteAheadLog<T extends FinancialOperation> implements OperationJournal<T>, AutoCloseable, Flushable {
+    private static final long FLUSH_INTERVAL_MS = 20;
+    private static final long SNAPSHOT_INTERVAL_MINUTES = 5;
+    private static final int SNAPSHOT_THRESHOLD = 10_000;
+
+    public interface SnapshotWriter {
+        void write() throws IOException;
+    }
+
+    private final Path directory;
+    private final String name;
+    private final Gson gson;
+    private final Class<T> type;
+    private final FinancialRepository<T> repository;
+    private final SnapshotWriter snapshotWriter;
+    // fsync и снимки в разных потоках: долгий снимок не задерживает сброс журнала
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledExecutorService snapshots;
+    private final Object snapshotLock = new Object();
+
+    private long generation;
+    private FileChannel channel;
+    private Writer writer;
+    private boolean dirty;
+    private volatile int appendedSinceSnapshot;
+    private boolean snapshotScheduled;
+
+    public WriteAheadLog(Path directory, String name, Gson gson, Class<T> type,
+                         FinancialRepository<T> repository, SnapshotWriter snapshotWriter) {
+        this.directory = directory;
+        this.name = name;
+        this.gson = gson;
+        this.type = type;
+        this.repository = repository;
+        this.snapshotWriter = snapshotWriter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "wal-" + name));
+        this.snapshots = Executors.newSingleThreadScheduledExecutor(
+                runnable -> daemon(runnable, "wal-snapshot-" + name));
+    }
+
+    private static Thread daemon(Runnable runnable, String threadName) {
+        Thread thread = new Thread(runnable, threadName);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Воспроизводит существующие сегменты и начинает новый; возвращает число примененных записей
+    public synchronized int open() throws IOException {
+        Files.createDirectories(directory);
+        int applied = 0;
+        for (long segment : listSegments()) {
+            applied += replay(segmentPath(segment));
+            generation = Math.max(generation, segment);
+        }
+        openSegment(generation + 1);
+
+        scheduler.scheduleWithFixedDelay(this::syncQuietly,
+                FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        snapshots.scheduleWithFixedDelay(this::snapshotQuietly,
+                SNAPSHOT_INTERVAL_MINUTES, SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        return applied;
+    }
+
+    @Override
+    public void recordAdded(T operation) {
+        append("ADD", operation.getId(), operation);
+    }
+
+    @Override
+    public void recordUpdated(T operation) {
+        append("UPDATE", operation.getId(), operation);
+    }
+
+    @Override
+    public void recordDeleted(String id) {
+        append("DELETE", id, null);
+    }
+
+    // Записи пачки идут в журнал подряд, без чужих записей между ними
+    @Override
+    public synchronized void recordAddedAll(List<T> operations) {
+        for (T operation : operations) {
+            append("ADD", operation.getId(), operation);
+        }
+    }
+
+    @Override
+    public synchronized void recordUpdatedAll(List<T> operations) {
+        for (T operation : operations) {
+            append("UPDATE", operation.getId(), operation);
+        }
+    }
+
+    @Override
+    public synchronized void recordDeletedAll(List<String> ids) {
+        for (String id : ids) {
+            append("DELETE", id, null);
+        }
+    }
+
+    // Записывает снимок всех операций и удаляет сегменты, которые он покрывает
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long sealedGeneration;
+            synchronized (this) {
+                sync();
+                sealedGeneration = generation;
+                openSegment(generation + 1);
+                appendedSinceSnapshot = 0;
+                snapshotScheduled = false;
+            }
+
+            snapshotWriter.write();
+
+            for (long segment : listSegments()) {
+                if (segment <= sealedGeneration) {
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+        }
+    }
+
+    // Сбрасывает на диск уже дописанные записи, не дожидаясь очередного fsync
+    @Override
+    public void flush() throws IOException {
+        sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        snapshots.shutdownNow();
+        synchronized (this) {
+            if (writer != null) {
+                sync();
+                writer.close();
+            }
+        }
+    }
+
+    private synchronized void append(String action, String id, T operation) {
+        JsonObject record = new JsonObject();
+        record.addProperty("type", action);
+        record.addProperty("id", id);
+        if (operation != null) {
+            record.add("operation", gson.toJsonTree(operation, type));
+        }
+
+        try {
+            writer.write(record.toString());
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи в журнал " + name, e);
+        }
+        dirty = true;
+
+        if (++appendedSinceSnapshot >= SNAPSHOT_THRESHOLD && !snapshotScheduled) {
+            snapshotScheduled = true;
+            snapshots.execute(this::snapshotQuietly);
+        }
+    }
+
+    private int replay(Path segment) throws IOException {
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    apply(JsonParser.parseString(line).getAsJsonObject());
+                    applied++;
+                } catch (JsonParseException | IllegalStateException e) {
+                    // Оборванная последняя запись после сбоя
+                    System.err.println("✗ Поврежденная запись в " + segment.getFileName() + ": " + e.getMessage());
+                    break;
+                }
+            }
+        }
+        return applied;
+    }
+
+    // Записи содержат полное состояние операции, поэтому повторное применение безопасно
+    private void apply(JsonObject record) {
+        String id = record.get("id").getAsString();
+        if ("DELETE".equals(record.get("type").getAsString())) {
+            if (repository.exists(id)) {
+                repository.delete(id);
+            }
+            return;
+        }
+
+        T operation = gson.fromJson(record.get("operation"), type);
+        if ("ADD".equals(record.get("type").getAsString())) {
+            // Обычно операции еще нет, поэтому без предварительного поиска по ID
+            try {
+                repository.add(operation);
+            } catch (IllegalArgumentException e) {
+                repository.update(operation);
+            }
+            return;
+        }
+        if (repository.exists(id)) {
+            repository.update(operation);
+        } else {
+            repository.add(operation);
+        }
+    }
+
+    private void openSegment(long newGeneration) throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+        generation = newGeneration;
+        channel = FileChannel.open(segmentPath(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        dirty = false;
+    }
+
+    private synchronized void sync() throws IOException {
+        if (dirty) {
+            writer.flush();
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("✗ Ошибка сброса журнала " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            if (appendedSinceSnapshot > 0) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            System.err.println("✗ Ошибка создания снимка " + name + ": " + e.getMessage());
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        String prefix = name + "-";
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(file -> file.startsWith(prefix) && file.endsWith(".wal"))
+                    .forEach(file -> {
+                        try {
+                            segments.add(Long.parseLong(file.substring(prefix.length(), file.length() - 4)));
+                        } catch (NumberFormatException ignored) {
+                            // Чужой файл
+                        }
+                    });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(name + "-" + segment + ".wal");
+    }
+}
@@ -1,5 +1,6 @@
 package financialmanager.service;
 
+import financialmanager.model.entities.Money;
 import financialmanager.model.repositories.ExpenseRepository;
 import financialmanager.model.repositories.IncomeRepository;
 import java.util.Objects;
@@ -17,9 +18,9 @@ public class AnalyticsService {
     }
 
     public double getTotalBalance() {
-        double totalIncomes = incomeRepository.getTotalBalance();
-        double totalExpenses = expenseRepository.getTotalBalance();
-        return totalIncomes + totalExpenses;
+        Money totalIncomes = incomeRepository.getTotalBalance();
+        Money totalExpenses = expenseRepository.getTotalBalance();
+        return totalIncomes.plus(totalExpenses).toDouble();
     }
 
     public Map<String, Object> getFinancialStatistics(LocalDate startDate, LocalDate endDate) {
@@ -28,15 +29,16 @@ public class AnalyticsService {
 
         Map<String, Object> statistics = new HashMap<>();
 
-        double incomes = incomeRepository.getTotalIncomes(startDate, endDate);
-        double expenses = expenseRepository.getTotalExpenses(startDate, endDate);
-        double balance = incomes - expenses;
+        Money incomes = incomeRepository.getTotalIncomes(startDate, endDate);
+        Money expenses = expenseRepository.getTotalExpenses(startDate, endDate);
+        Money balance = incomes.minus(expenses);
 
-        statistics.put("Общие доходы", incomes);
-        statistics.put("Общие расходы", expenses);
-        statistics.put("Баланс", balance);
-        statistics.put("Процент расходов", incomes > 0 ? (expenses / incomes) * 100 : 0);
-        statistics.put("Статус", balance >= 0 ? "Положительный" : "Отрицательный");
+        statistics.put("Общие доходы", incomes.toDouble());
+        statistics.put("Общие расходы", expenses.toDouble());
+        statistics.put("Баланс", balance.toDouble());
+        statistics.put("Процент расходов", incomes.isPositive()
+                ? (double) expenses.getMinorUnits() / incomes.getMinorUnits() * 100 : 0.0);
+        statistics.put("Статус", balance.signum() >= 0 ? "Положительный" : "Отрицательный");
 
         return statistics;
     }
@@ -54,11 +56,12 @@ public class AnalyticsService {
 
         Map<String, Object> analytics = new HashMap<>();
 
-        Map<String, Double> expensesByCategory = expenseRepository.getAmountsByCategory(startDate, endDate);
-        double totalExpenses = expenseRepository.getTotalExpenses(startDate, endDate);
+        Map<String, Double> expensesByCategory = Money.toDoubleValues(
+                expenseRepository.getAmountsByCategory(startDate, endDate));
+        Money totalExpenses = expenseRepository.getTotalExpenses(startDate, endDate);
 
         analytics.put("Расходы по категориям", expensesByCategory);
-        analytics.put("Общие расходы", totalExpenses);
+        analytics.put("Общие расходы", totalExpenses.toDouble());
         analytics.put("Самая затратная категория", findMaxCategory(expensesByCategory));
 
         return analytics;
@@ -70,11 +73,12 @@ public class AnalyticsService {
 
         Map<String, Object> analytics = new HashMap<>();
 
-        Map<String, Double> incomesBySource = incomeRepository.getAmountsBySource(startDate, endDate);
-        double totalIncomes = incomeRepository.getTotalIncomes(startDate, endDate);
+        Map<String, Double> incomesBySource = Money.toDoubleValues(
+                incomeRepository.getAmountsBySource(startDate, endDate));
+        Money totalIncomes = incomeRepository.getTotalIncomes(startDate, endDate);
 
         analytics.put("Доходы по источникам", incomesBySource);
-        analytics.put("Общие доходы", totalIncomes);
+        analytics.put("Общие доходы", totalIncomes.toDouble());
         analytics.put("Основной источник дохода", findMaxSource(incomesBySource));
 
         return analytics;
@@ -0,0 +1,176 @@
+package financialmanager.service;
+
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.repositories.FinancialRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Индекс отпечатков (дата, название, сумма, карта) для поиска повторно введенных операций.
+// Название нормализуется, дата и сумма совпадают с допуском. Отпечатки раскладываются по
+// корзинам шириной в допуск, поэтому похожие операции лежат в той же или соседней корзине:
+// проверка смотрит 3x3 корзины и не зависит от размера репозитория.
+// Индекс строится из репозитория вызовом build (импорт делает это в фоновом потоке) и дальше
+// ведется как журнал сервиса. В индексе только ID, день и сумма: найденные операции читаются
+// из репозитория. До построения проверка идет запросом к репозиторию за несколько дней.
+class DuplicateIndex<T extends FinancialOperation> implements OperationJournal<T> {
+    private record Fingerprint(String name, String creditCardId, long dayBucket, long amountBucket) {
+    }
+
+    private record Entry(String id, long epochDay, long amount) {
+    }
+
+    private final FinancialRepository<T> repository;
+    private final int dayTolerance;
+    private final long amountTolerance;
+    private final Map<Fingerprint, List<Entry>> buckets = new HashMap<>();
+    // Отпечаток, под которым лежит операция: диалоги меняют сущность до вызова update
+    private final Map<String, Fingerprint> indexed = new HashMap<>();
+    // Меняется только с false на true под монитором
+    private volatile boolean built;
+
+    DuplicateIndex(FinancialRepository<T> repository, int dayTolerance, long amountTolerance) {
+        this.repository = Objects.requireNonNull(repository, "Репозиторий не может быть null");
+        if (dayTolerance < 0 || amountTolerance < 0) {
+            throw new IllegalArgumentException("Допуск не может быть отрицательным");
+        }
+        this.dayTolerance = dayTolerance;
+        this.amountTolerance = amountTolerance;
+    }
+
+    // Операции, похожие на переданную; сама операция (по ID) не учитывается
+    List<T> findDuplicates(String id, LocalDate date, String name, long amount, String creditCardId) {
+        String normalized = normalize(name);
+        String card = Objects.requireNonNullElse(creditCardId, "");
+        long epochDay = date.toEpochDay();
+
+        if (!built) {
+            return scan(id, date, normalized, amount, card);
+        }
+        List<String> ids = new ArrayList<>();
+        synchronized (this) {
+            long dayBucket = Math.floorDiv(epochDay, dayTolerance + 1);
+            long amountBucket = Math.floorDiv(amount, amountTolerance + 1);
+            for (long day = dayBucket - 1; day <= dayBucket + 1; day++) {
+                for (long sum = amountBucket - 1; sum <= amountBucket + 1; sum++) {
+                    List<Entry> entries = buckets.get(new Fingerprint(normalized, card, day, sum));
+                    if (entries == null) {
+                        continue;
+                    }
+                    for (Entry entry : entries) {
+                        if (Math.abs(entry.epochDay() - epochDay) <= dayTolerance
+                                && Math.abs(entry.amount() - amount) <= amountTolerance
+                                && !entry.id().equals(id)) {
+                            ids.add(entry.id());
+                        }
+                    }
+                }
+            }
+        }
+
+        // Репозиторий читается вне монитора индекса
+        List<T> result = new ArrayList<>(ids.size());
+        for (String duplicateId : ids) {
+            repository.findById(duplicateId).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    // Одиночная проверка без индекса: операции за несколько дней вокруг даты
+    private List<T> scan(String id, LocalDate date, String normalized, long amount, String card) {
+        List<T> result = new ArrayList<>();
+        for (T operation : repository.findByDateRange(date.minusDays(dayTolerance), date.plusDays(dayTolerance))) {
+            if (!operation.getId().equals(id)
+                    && Math.abs(operation.getMoney().getMinorUnits() - amount) <= amountTolerance
+                    && Objects.requireNonNullElse(operation.getCreditCardId(), "").equals(card)
+                    && normalize(operation.getName()).equals(normalized)) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void recordAdded(T operation) {
+        if (built) {
+            index(operation);
+        }
+    }
+
+    @Override
+    public synchronized void recordUpdated(T operation) {
+        if (built) {
+            unindex(operation.getId());
+            index(operation);
+        }
+    }
+
+    @Override
+    public synchronized void recordDeleted(String id) {
+        if (built) {
+            unindex(id);
+        }
+    }
+
+    @Override
+    public synchronized void recordAddedAll(List<T> operations) {
+        if (built) {
+            operations.forEach(this::index);
+        }
+    }
+
+    // Читает весь репозиторий - вызывается не из потока Swing
+    synchronized void build() {
+        if (!built) {
+            repository.findAll().forEach(this::index);
+            built = true;
+        }
+    }
+
+    private void index(T operation) {
+        // Операция, добавленная во время построения, может прийти и из репозитория, и из журнала
+        unindex(operation.getId());
+        long epochDay = operation.getDate().toEpochDay();
+        long amount = operation.getMoney().getMinorUnits();
+        Fingerprint fingerprint = new Fingerprint(normalize(operation.getName()),
+                Objects.requireNonNullElse(operation.getCreditCardId(), ""),
+                Math.floorDiv(epochDay, dayTolerance + 1), Math.floorDiv(amount, amountTolerance + 1));
+        buckets.computeIfAbsent(fingerprint, key -> new ArrayList<>(1)).add(new Entry(operation.getId(), epochDay, amount));
+        indexed.put(operation.getId(), fingerprint);
+    }
+
+    private void unindex(String id) {
+        Fingerprint fingerprint = indexed.remove(id);
+        if (fingerprint == null) {
+            return;
+        }
+        List<Entry> entries = buckets.get(fingerprint);
+        entries.removeIf(entry -> entry.id().equals(id));
+        if (entries.isEmpty()) {
+            buckets.remove(fingerprint);
+        }
+    }
+
+    // Регистр, пунктуация и лишние пробелы не различаются: "ООО  Ромашка." = "ооо ромашка"
+    static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(ch));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package financialmanager.service;
 
 import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Money;
 import financialmanager.model.enums.ExpenseType;
 import financialmanager.model.repositories.ExpenseRepository;
 import java.util.Objects;
@@ -27,19 +28,19 @@ public class ExpenseService extends FinancialService<Expense> {
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
-        return getExpenseRepository().getAmountsByCategory(startDate, endDate);
+        return Money.toDoubleValues(getExpenseRepository().getAmountsByCategory(startDate, endDate));
     }
 
     public double getTotalExpenses(LocalDate startDate, LocalDate endDate) {
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
-        return getExpenseRepository().getTotalExpenses(startDate, endDate);
+        return getExpenseRepository().getTotalExpenses(startDate, endDate).toDouble();
     }
 
     @Override
     public double getTotalBalance() {
-        return getExpenseRepository().getTotalBalance();
+        return getExpenseRepository().getTotalBalance().toDouble();
     }
 
     public double getCurrentMonthlyExpense() {
@@ -4,14 +4,40 @@ import financialmanager.model.entities.FinancialOperation;
 import financialmanager.model.repositories.FinancialRepository;
 import java.util.Objects;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class FinancialService<T extends FinancialOperation> {
+    // Допуск при поиске дубликатов: дата списания в банке может отличаться на пару дней,
+    // сумма при ручном вводе - на округление до рубля
+    private static final int DUPLICATE_DAY_TOLERANCE = 2;
+    private static final long DUPLICATE_AMOUNT_TOLERANCE = 100;
+    private static final int LOCK_STRIPES = 64;
+
     protected final FinancialRepository<T> repository;
+    private final List<OperationJournal<T>> journals = new CopyOnWriteArrayList<>();
+    private final DuplicateIndex<T> duplicates;
+    // Изменение репозитория и запись в журналы идут под блокировкой полосы ID: изменения одной
+    // операции попадают в журнал упреждающей записи в том же порядке, в каком применены
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
 
     public FinancialService(FinancialRepository<T> repository) {
         this.repository = Objects.requireNonNull(repository, "Репозиторий не может быть null");
+        this.duplicates = new DuplicateIndex<>(repository, DUPLICATE_DAY_TOLERANCE, DUPLICATE_AMOUNT_TOLERANCE);
+        journals.add(duplicates);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void addJournal(OperationJournal<T> journal) {
+        journals.add(Objects.requireNonNull(journal, "Журнал не может быть null"));
     }
 
     public void addOperation(T operation) {
@@ -19,12 +45,129 @@ public abstract class FinancialService<T extends FinancialOperation> {
         if (!operation.isValid()) {
             throw new IllegalArgumentException("Некорректные данные операции");
         }
-        repository.add(operation);
+        ReentrantLock stripe = lock(operation.getId());
+        try {
+            repository.add(operation);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordAdded(operation);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Пакетные операции: пачка проверяется целиком и применяется полностью или не применяется
+    public void addOperations(List<T> operations) {
+        validate(operations);
+        List<ReentrantLock> locked = lockAll(idsOf(operations));
+        try {
+            repository.addAll(operations);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordAddedAll(operations);
+            }
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    public void updateOperations(List<T> operations) {
+        validate(operations);
+        List<ReentrantLock> locked = lockAll(idsOf(operations));
+        try {
+            repository.updateAll(operations);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordUpdatedAll(operations);
+            }
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    public void deleteOperations(List<String> ids) {
+        Objects.requireNonNull(ids, "Список ID не может быть null");
+        List<ReentrantLock> locked = lockAll(ids);
+        try {
+            repository.deleteAll(ids);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordDeletedAll(ids);
+            }
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    // Сохраненные операции с той же картой и названием и близкими датой и суммой
+    public List<T> findDuplicates(T operation) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        return duplicates.findDuplicates(operation.getId(), operation.getDate(), operation.getName(),
+                operation.getMoney().getMinorUnits(), operation.getCreditCardId());
+    }
+
+    // Добавляет пачку без операций, похожих на сохраненные. Совпадения с операциями из
+    // sessionIds (добавленными тем же импортом) не считаются дубликатами - в выписке бывают
+    // одинаковые покупки; ID добавленных операций дописываются в sessionIds.
+    // Возвращает число пропущенных операций.
+    public int addNewOperations(List<T> operations, Set<String> sessionIds) {
+        validate(operations);
+        Objects.requireNonNull(sessionIds, "Набор ID не может быть null");
+        // Импорт идет в фоновом потоке - здесь индекс и строится
+        duplicates.build();
+        List<T> fresh = new ArrayList<>(operations.size());
+        for (T operation : operations) {
+            boolean duplicate = false;
+            for (T existing : findDuplicates(operation)) {
+                if (!sessionIds.contains(existing.getId())) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                fresh.add(operation);
+            }
+        }
+        addOperations(fresh);
+        for (T operation : fresh) {
+            sessionIds.add(operation.getId());
+        }
+        return operations.size() - fresh.size();
+    }
+
+    private void validate(List<T> operations) {
+        Objects.requireNonNull(operations, "Список операций не может быть null");
+        for (T operation : operations) {
+            Objects.requireNonNull(operation, "Операция не может быть null");
+            if (!operation.isValid()) {
+                throw new IllegalArgumentException("Некорректные данные операции '" + operation.getId() + "'");
+            }
+        }
     }
 
     public void deleteOperation(String id) {
         Objects.requireNonNull(id, "ID не может быть null");
-        repository.delete(id);
+        ReentrantLock stripe = lock(id);
+        try {
+            repository.delete(id);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordDeleted(id);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Удаляет, только если сохраненная операция все еще в версии expectedVersion,
+    // иначе VersionConflictException
+    public void deleteOperation(String id, long expectedVersion) {
+        Objects.requireNonNull(id, "ID не может быть null");
+        ReentrantLock stripe = lock(id);
+        try {
+            repository.delete(id, expectedVersion);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordDeleted(id);
+            }
+        } finally {
+            stripe.unlock();
+        }
     }
 
     public void updateOperation(T operation) {
@@ -32,7 +175,67 @@ public abstract class FinancialService<T extends FinancialOperation> {
         if (!operation.isValid()) {
             throw new IllegalArgumentException("Некорректные данные операции");
         }
-        repository.update(operation);
+        ReentrantLock stripe = lock(operation.getId());
+        try {
+            repository.update(operation);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordUpdated(operation);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Обновляет, только если сохраненная операция все еще в версии expectedVersion,
+    // иначе VersionConflictException
+    public void updateOperation(T operation, long expectedVersion) {
+        Objects.requireNonNull(operation, "Операция не может быть null");
+        if (!operation.isValid()) {
+            throw new IllegalArgumentException("Некорректные данные операции");
+        }
+        ReentrantLock stripe = lock(operation.getId());
+        try {
+            repository.update(operation, expectedVersion);
+            for (OperationJournal<T> journal : journals) {
+                journal.recordUpdated(operation);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ReentrantLock lock(String id) {
+        ReentrantLock stripe = stripes[Math.floorMod(id.hashCode(), LOCK_STRIPES)];
+        stripe.lock();
+        return stripe;
+    }
+
+    // Полосы пачки берутся по возрастанию номера, поэтому пачки не блокируют друг друга навечно
+    private List<ReentrantLock> lockAll(Collection<String> ids) {
+        Set<Integer> indexes = new TreeSet<>();
+        for (String id : ids) {
+            indexes.add(Math.floorMod(id.hashCode(), LOCK_STRIPES));
+        }
+        List<ReentrantLock> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+        return locked;
+    }
+
+    private void unlockAll(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+
+    private List<String> idsOf(List<T> operations) {
+        List<String> ids = new ArrayList<>(operations.size());
+        for (T operation : operations) {
+            ids.add(operation.getId());
+        }
+        return ids;
     }
 
     public Optional<T> getOperationById(String id) {
@@ -55,9 +258,18 @@ public abstract class FinancialService<T extends FinancialOperation> {
         return repository.findByCategory(categoryId);
     }
 
+    public List<T> getOperationsByCreditCardId(String creditCardId) {
+        Objects.requireNonNull(creditCardId, "ID карты не может быть null");
+        return repository.findByCreditCardId(creditCardId);
+    }
+
     public boolean operationExists(String id) {
         return repository.exists(id);
     }
 
+    public int getOperationCount() {
+        return repository.count();
+    }
+
     public abstract double getTotalBalance();
 }
\ No newline at end of file
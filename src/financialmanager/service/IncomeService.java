@@ -1,6 +1,7 @@
 package financialmanager.service;
 
 import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
 import financialmanager.model.enums.IncomeSource;
 import financialmanager.model.repositories.IncomeRepository;
 import java.util.Objects;
@@ -27,19 +28,19 @@ public class IncomeService extends FinancialService<Income> {
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
-        return getIncomeRepository().getAmountsBySource(startDate, endDate);
+        return Money.toDoubleValues(getIncomeRepository().getAmountsBySource(startDate, endDate));
     }
 
     public double getTotalIncomes(LocalDate startDate, LocalDate endDate) {
         Objects.requireNonNull(startDate, "Начальная дата не может быть null");
         Objects.requireNonNull(endDate, "Конечная дата не может быть null");
 
-        return getIncomeRepository().getTotalIncomes(startDate, endDate);
+        return getIncomeRepository().getTotalIncomes(startDate, endDate).toDouble();
     }
 
     @Override
     public double getTotalBalance() {
-        return getIncomeRepository().getTotalBalance();
+        return getIncomeRepository().getTotalBalance().toDouble();
     }
 
     public double getCurrentMonthlyIncome() {
@@ -0,0 +1,25 @@
+package financialmanager.service;
+
+import financialmanager.model.entities.FinancialOperation;
+
+import java.util.List;
+
+// Журнал изменений, в который сервис записывает каждую успешную операцию.
+// Пакетное изменение приходит одним вызовом на всю пачку.
+public interface OperationJournal<T extends FinancialOperation> {
+    void recordAdded(T operation);
+    void recordUpdated(T operation);
+    void recordDeleted(String id);
+
+    default void recordAddedAll(List<T> operations) {
+        operations.forEach(this::recordAdded);
+    }
+
+    default void recordUpdatedAll(List<T> operations) {
+        operations.forEach(this::recordUpdated);
+    }
+
+    default void recordDeletedAll(List<String> ids) {
+        ids.forEach(this::recordDeleted);
+    }
+}
@@ -0,0 +1,242 @@
+package financialmanager.service;
+
+import financialmanager.model.entities.CreditCard;
+import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.FinancialOperation;
+import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
+import financialmanager.model.managers.CreditCardManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+// Транзакции над операциями и балансами карт: шаги применяются в commit все или ни один.
+// Версии операций проверяются оптимистично, списание - по лимиту на момент commit;
+// при ошибке выполненные шаги откатываются в обратном порядке.
+public class TransactionManager {
+    private final ExpenseService expenseService;
+    private final IncomeService incomeService;
+    private final CreditCardManager cardManager;
+
+    public TransactionManager(ExpenseService expenseService, IncomeService incomeService,
+                              CreditCardManager cardManager) {
+        this.expenseService = Objects.requireNonNull(expenseService, "Сервис расходов не может быть null");
+        this.incomeService = Objects.requireNonNull(incomeService, "Сервис доходов не может быть null");
+        this.cardManager = Objects.requireNonNull(cardManager, "Менеджер карт не может быть null");
+    }
+
+    public Transaction begin() {
+        return new Transaction();
+    }
+
+    private interface Step {
+        void apply();
+        void undo();
+    }
+
+    public class Transaction {
+        // Шаги по картам выполняются первыми: нехватка лимита отменяет транзакцию до записи операций
+        private final List<Step> cardSteps = new ArrayList<>();
+        private final List<Step> operationSteps = new ArrayList<>();
+        private final List<FinancialOperation> staged = new ArrayList<>();
+        private boolean finished;
+
+        public Transaction addExpense(Expense expense) {
+            return add(expenseService, expense);
+        }
+
+        public Transaction updateExpense(Expense expense) {
+            return update(expenseService, expense, -1);
+        }
+
+        // expectedVersion - версия, которую видел пользователь при открытии операции на изменение
+        public Transaction updateExpense(Expense expense, long expectedVersion) {
+            return update(expenseService, expense, expectedVersion);
+        }
+
+        public Transaction deleteExpense(String id) {
+            return delete(expenseService, id);
+        }
+
+        public Transaction addIncome(Income income) {
+            return add(incomeService, income);
+        }
+
+        public Transaction updateIncome(Income income) {
+            return update(incomeService, income, -1);
+        }
+
+        public Transaction updateIncome(Income income, long expectedVersion) {
+            return update(incomeService, income, expectedVersion);
+        }
+
+        public Transaction deleteIncome(String id) {
+            return delete(incomeService, id);
+        }
+
+        // Увеличивает задолженность по карте; при нехватке лимита commit отменяется
+        public Transaction withdraw(String cardId, Money amount) {
+            CreditCard card = card(cardId);
+            requirePositive(amount);
+            cardSteps.add(new Step() {
+                @Override
+                public void apply() {
+                    if (!card.tryWithdraw(amount)) {
+                        throw new IllegalArgumentException(String.format(
+                                "Недостаточно кредита на карте %s: нужно %.2f ₽, доступно %.2f ₽",
+                                card.getCardNumber(), amount.toDouble(), card.getAvailableCredit()));
+                    }
+                }
+
+                @Override
+                public void undo() {
+                    card.cancelWithdrawal(amount);
+                }
+            });
+            return this;
+        }
+
+        public Transaction deposit(String cardId, Money amount) {
+            CreditCard card = card(cardId);
+            requirePositive(amount);
+            cardSteps.add(new Step() {
+                // Задолженность не уходит ниже нуля, поэтому отменяется фактически погашенная часть
+                private Money repaid = Money.ZERO;
+
+                @Override
+                public void apply() {
+                    repaid = card.deposit(amount);
+                }
+
+                @Override
+                public void undo() {
+                    card.charge(repaid);
+                }
+            });
+            return this;
+        }
+
+        public void commit() {
+            if (finished) {
+                throw new IllegalStateException("Транзакция уже завершена");
+            }
+            finished = true;
+            // Данные проверяются до первого изменения, чтобы некорректная транзакция ничего не трогала
+            for (FinancialOperation operation : staged) {
+                if (!operation.isValid()) {
+                    throw new IllegalArgumentException("Некорректные данные операции '" + operation.getId() + "'");
+                }
+            }
+
+            Deque<Step> applied = new ArrayDeque<>();
+            try {
+                for (Step step : cardSteps) {
+                    step.apply();
+                    applied.push(step);
+                }
+                for (Step step : operationSteps) {
+                    step.apply();
+                    applied.push(step);
+                }
+            } catch (RuntimeException e) {
+                for (Step step : applied) {
+                    try {
+                        step.undo();
+                    } catch (RuntimeException undoError) {
+                        e.addSuppressed(undoError);
+                        System.err.println("✗ Ошибка отката транзакции: " + undoError.getMessage());
+                    }
+                }
+                throw e;
+            }
+        }
+
+        private <T extends FinancialOperation> Transaction add(FinancialService<T> service, T operation) {
+            Objects.requireNonNull(operation, "Операция не может быть null");
+            staged.add(operation);
+            operationSteps.add(new Step() {
+                @Override
+                public void apply() {
+                    service.addOperation(operation);
+                }
+
+                @Override
+                public void undo() {
+                    service.deleteOperation(operation.getId(), operation.getVersion());
+                }
+            });
+            return this;
+        }
+
+        // expectedVersion = -1 - ожидается версия на момент добавления шага
+        private <T extends FinancialOperation> Transaction update(FinancialService<T> service, T operation,
+                                                                  long expectedVersion) {
+            Objects.requireNonNull(operation, "Операция не может быть null");
+            T expected = current(service, operation.getId());
+            long version = expectedVersion >= 0 ? expectedVersion : expected.getVersion();
+            staged.add(operation);
+            operationSteps.add(new Step() {
+                @Override
+                public void apply() {
+                    service.updateOperation(operation, version);
+                }
+
+                @Override
+                public void undo() {
+                    // После apply у операции версия, под которой она сохранена
+                    service.updateOperation(expected, operation.getVersion());
+                }
+            });
+            return this;
+        }
+
+        private <T extends FinancialOperation> Transaction delete(FinancialService<T> service, String id) {
+            T expected = current(service, id);
+            operationSteps.add(new Step() {
+                @Override
+                public void apply() {
+                    service.deleteOperation(id, expected.getVersion());
+                }
+
+                @Override
+                public void undo() {
+                    service.addOperation(expected);
+                }
+            });
+            return this;
+        }
+
+        // Копия сохраненного состояния: диалоги могут менять сущность на месте до commit
+        private <T extends FinancialOperation> T current(FinancialService<T> service, String id) {
+            Objects.requireNonNull(id, "ID не может быть null");
+            return service.getOperationById(id)
+                    .map(TransactionManager::copyOf)
+                    .orElseThrow(() -> new IllegalArgumentException("Операция с ID '" + id + "' не найдена"));
+        }
+
+        private CreditCard card(String cardId) {
+            Objects.requireNonNull(cardId, "ID карты не может быть null");
+            CreditCard card = cardManager.getCardById(cardId);
+            if (card == null) {
+                throw new IllegalArgumentException("Карта с ID '" + cardId + "' не найдена");
+            }
+            return card;
+        }
+
+        private void requirePositive(Money amount) {
+            Objects.requireNonNull(amount, "Сумма не может быть null");
+            if (!amount.isPositive()) {
+                throw new IllegalArgumentException("Сумма должна быть положительной");
+            }
+        }
+    }
+
+    // Копия вместе с версией, под которой операция была прочитана
+    @SuppressWarnings("unchecked")
+    private static <T extends FinancialOperation> T copyOf(T operation) {
+        return (T) operation.copy();
+    }
+}
@@ -1,6 +1,7 @@
 package financialmanager.util;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
 
@@ -13,6 +14,9 @@ public class DateUtils {
     private static final DateTimeFormatter DISPLAY_FORMATTER =
             DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
+    private static final DateTimeFormatter MONTH_FORMATTER =
+            DateTimeFormatter.ofPattern("MM.yyyy");
+
     public static String formatForDisplay(LocalDate date) {
         return date.format(DISPLAY_FORMATTER);
     }
@@ -21,4 +25,8 @@ public class DateUtils {
         return LocalDate.parse(dateString, DISPLAY_FORMATTER);
     }
 
+    public static String formatMonthForDisplay(YearMonth month) {
+        return month.format(MONTH_FORMATTER);
+    }
+
 }
\ No newline at end of file
@@ -47,8 +47,23 @@ public class AnalyticsPanel extends JPanel {
         scrollPane.setBorder(BorderFactory.createTitledBorder("Отчет"));
         add(scrollPane, BorderLayout.CENTER);
 
-        // Показать начальную информацию
-        showGeneralReport();
+        // Начальный отчет считается в фоне, чтобы не задерживать появление вкладок
+        reportArea.setText("Формирование отчета...");
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return buildGeneralReport();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    reportArea.setText(get());
+                } catch (Exception e) {
+                    reportArea.setText("Ошибка при формировании отчета: " + e.getMessage());
+                }
+            }
+        }.execute();
     }
 
     private JPanel createButtonPanel() {
@@ -144,6 +159,10 @@ public class AnalyticsPanel extends JPanel {
     }
 
     private void showGeneralReport() {
+        reportArea.setText(buildGeneralReport());
+    }
+
+    private String buildGeneralReport() {
         LocalDate now = LocalDate.now();
         LocalDate startOfYear = LocalDate.of(now.getYear(), 1, 1);
         LocalDate endOfYear = LocalDate.of(now.getYear(), 12, 31);
@@ -161,7 +180,7 @@ public class AnalyticsPanel extends JPanel {
             }
         });
 
-        reportArea.setText(report.toString());
+        return report.toString();
     }
 
     private void showMonthlyReport() {
@@ -330,8 +330,6 @@ public class CreditCardPanel extends JPanel {
                             "Успех", JOptionPane.INFORMATION_MESSAGE);
                 }
 
-                cardManager.updateCard(card);
-
             } catch (IllegalArgumentException ex) {
                 JOptionPane.showMessageDialog(this, "Ошибка: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
             } catch (Exception ex) {
@@ -350,20 +348,9 @@ public class CreditCardPanel extends JPanel {
 
         CreditCard card = cardManager.getAllCards().get(selectedRow);
 
-        // Получаем все операции
-        List<Expense> allExpenses = expenseController.getAll();
-        List<Income> allIncomes = incomeController.getAll();
-
-        // Фильтруем операции по ID карты
-        List<Expense> cardExpenses = allExpenses.stream()
-                .filter(e -> e.hasCreditCard() && e.getCreditCardId().equals(card.getId()))
-                .sorted((a, b) -> b.getDate().compareTo(a.getDate()))  // Сначала новые
-                .toList();
-
-        List<Income> cardIncomes = allIncomes.stream()
-                .filter(i -> i.hasCreditCard() && i.getCreditCardId().equals(card.getId()))
-                .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                .toList();
+        // Операции по карте из индекса репозитория (сначала новые)
+        List<Expense> cardExpenses = expenseController.getByCreditCardId(card.getId());
+        List<Income> cardIncomes = incomeController.getByCreditCardId(card.getId());
 
         // Строим отчет
         StringBuilder report = new StringBuilder();
@@ -4,13 +4,17 @@ import financialmanager.controller.ExpenseController;
 import financialmanager.model.entities.Category;
 import financialmanager.model.entities.CreditCard;
 import financialmanager.model.entities.Expense;
+import financialmanager.model.entities.Money;
+import financialmanager.model.managers.CategoryRegistry;
 import financialmanager.model.managers.CreditCardManager;
 import financialmanager.model.enums.ExpenseType;
+import financialmanager.service.TransactionManager;
 import financialmanager.util.DateUtils;
 import financialmanager.util.IDGenerator;
 
 import javax.swing.*;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -64,11 +68,11 @@ public class ExpenseDialog extends JDialog {
 
         fieldPanel.add(new JLabel("Категория:"));
         categoryCombo = new JComboBox<>(new Category[]{
-                new Category("1", "Еда"),
-                new Category("2", "Транспорт"),
-                new Category("3", "Жилье"),
-                new Category("4", "Развлечения"),
-                new Category("5", "Здоровье")
+                CategoryRegistry.intern(new Category("1", "Еда")),
+                CategoryRegistry.intern(new Category("2", "Транспорт")),
+                CategoryRegistry.intern(new Category("3", "Жилье")),
+                CategoryRegistry.intern(new Category("4", "Развлечения")),
+                CategoryRegistry.intern(new Category("5", "Здоровье"))
         });
         fieldPanel.add(categoryCombo);
 
@@ -153,8 +157,8 @@ public class ExpenseDialog extends JDialog {
                 return;
             }
 
-            double amount = Double.parseDouble(amountField.getText().trim());
-            if (amount <= 0) {
+            Money amount = Money.of(new BigDecimal(amountField.getText().trim()));
+            if (!amount.isPositive()) {
                 JOptionPane.showMessageDialog(this, "Сумма должна быть больше 0", "Ошибка", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -169,48 +173,49 @@ public class ExpenseDialog extends JDialog {
             CreditCard selectedCard = null;
             int selectedCardIndex = cardCombo.getSelectedIndex();
 
+            // Новую операцию сверяем с уже сохраненными до списания с карты
+            if (expenseToEdit == null) {
+                String cardId = selectedCardIndex > 0 ? cardManager.getAllCards().get(selectedCardIndex - 1).getId() : null;
+                if (!confirmIfDuplicate(new Expense(IDGenerator.generateId("EXP"), name, amount, date, description, category, type, cardId))) {
+                    return;
+                }
+            }
+
             if (selectedCardIndex > 0) {
                 selectedCard = cardManager.getAllCards().get(selectedCardIndex - 1);
                 creditCardId = selectedCard.getId();
+            }
 
-                // ПРОВЕРКА ЛИМИТА И СПИСАНИЕ
-                if (amount > selectedCard.getAvailableCredit()) {
+            // Расход и движение средств по картам проводятся одной транзакцией
+            TransactionManager.Transaction transaction = controller.beginTransaction();
+            Expense expense;
+            if (expenseToEdit == null) {
+                // ПРОВЕРКА ЛИМИТА (окончательная - при списании в транзакции)
+                if (selectedCard != null && amount.compareTo(selectedCard.getAvailableCreditMoney()) > 0) {
                     JOptionPane.showMessageDialog(this,
                             String.format("❌ Недостаточно средств на карте!\n\n" +
                                             "Сумма расхода: %.2f ₽\n" +
                                             "Доступно на карте: %.2f ₽\n" +
                                             "Не хватает: %.2f ₽",
-                                    amount, selectedCard.getAvailableCredit(),
-                                    amount - selectedCard.getAvailableCredit()),
+                                    amount.toDouble(), selectedCard.getAvailableCredit(),
+                                    amount.minus(selectedCard.getAvailableCreditMoney()).toDouble()),
                             "Ошибка", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
 
-                // СПИСЫВАЕМ ДЕНЬГИ С КАРТЫ!
-                try {
-                    selectedCard.withdraw(amount);
+                String id = IDGenerator.generateId("EXP");
+                expense = new Expense(id, name, amount, date, description, category, type, creditCardId);
+
+                // СПИСЫВАЕМ ДЕНЬГИ С КАРТЫ И СОХРАНЯЕМ
+                if (selectedCard != null) {
+                    transaction.withdraw(creditCardId, amount);
+                }
+                transaction.addExpense(expense).commit();
+                if (selectedCard != null) {
                     System.out.println("✅ Списано с карты " + selectedCard.getCardNumber() +
                             ": " + amount + " ₽. Новый баланс: " +
                             selectedCard.getCurrentBalance() + " ₽");
-
-                    // Обновляем карту в менеджере
-                    cardManager.updateCard(selectedCard);
-
-                } catch (IllegalArgumentException e) {
-                    JOptionPane.showMessageDialog(this, "Ошибка списания: " + e.getMessage(),
-                            "Ошибка", JOptionPane.ERROR_MESSAGE);
-                    return;
                 }
-            }
-
-            // Создаем расход
-            Expense expense;
-            if (expenseToEdit == null) {
-                String id = IDGenerator.generateId("EXP");
-                expense = new Expense(id, name, -amount, date, description, category, type, creditCardId);
-
-                // Сохраняем
-                controller.add(expense);
 
                 // Сообщение об успехе
                 String successMsg = "✅ Расход успешно добавлен!\n" +
@@ -225,46 +230,19 @@ public class ExpenseDialog extends JDialog {
                 JOptionPane.showMessageDialog(this, successMsg, "Успех", JOptionPane.INFORMATION_MESSAGE);
 
             } else {
-                // РЕДАКТИРОВАНИЕ С ВОЗВРАТОМ СРЕДСТВ
-                double oldAmount = Math.abs(expenseToEdit.getAmount());
+                // РЕДАКТИРОВАНИЕ С ВОЗВРАТОМ СРЕДСТВ: старая сумма возвращается на старую карту,
+                // новая списывается с выбранной; при ошибке не меняется ничего
                 String oldCardId = expenseToEdit.getCreditCardId();
-
-                // Если была привязана карта - возвращаем старые средства
-                if (oldCardId != null && !oldCardId.isEmpty()) {
-                    CreditCard oldCard = cardManager.getCardById(oldCardId);
-                    if (oldCard != null) {
-                        oldCard.deposit(oldAmount);
-                        cardManager.updateCard(oldCard);
-                    }
+                if (oldCardId != null && cardManager.getCardById(oldCardId) != null) {
+                    transaction.deposit(oldCardId, expenseToEdit.getMoney().abs());
                 }
-
-                // Если выбрана новая карта - списываем с нее
                 if (selectedCard != null) {
-                    try {
-                        selectedCard.withdraw(amount);
-                        cardManager.updateCard(selectedCard);
-                    } catch (IllegalArgumentException e) {
-                        // Если не удалось списать с новой карты - возвращаем старые средства
-                        if (oldCardId != null && !oldCardId.isEmpty()) {
-                            CreditCard oldCard = cardManager.getCardById(oldCardId);
-                            if (oldCard != null) {
-                                oldCard.withdraw(oldAmount);
-                                cardManager.updateCard(oldCard);
-                            }
-                        }
-                        throw e;
-                    }
+                    transaction.withdraw(creditCardId, amount);
                 }
 
-                expense = expenseToEdit;
-                expense.setName(name);
-                expense.setAmount(-amount);
-                expense.setDate(date);
-                expense.setExpenseType(type);
-                expense.setCategory(category);
-                expense.setDescription(description);
-                expense.setCreditCardId(creditCardId);
-                controller.update(expense);
+                expense = new Expense(expenseToEdit.getId(), name, amount, date, description, category, type,
+                        creditCardId);
+                transaction.updateExpense(expense, expenseToEdit.getVersion()).commit();
 
                 JOptionPane.showMessageDialog(this, "✅ Расход обновлен", "Успех", JOptionPane.INFORMATION_MESSAGE);
             }
@@ -279,6 +257,20 @@ public class ExpenseDialog extends JDialog {
         }
     }
 
+    private boolean confirmIfDuplicate(Expense candidate) {
+        List<Expense> duplicates = controller.findDuplicates(candidate);
+        if (duplicates.isEmpty()) {
+            return true;
+        }
+        Expense existing = duplicates.get(0);
+        int answer = JOptionPane.showConfirmDialog(this,
+                String.format("Похожий расход уже есть:\n%s, %s, %.2f ₽\n\nВсе равно добавить?",
+                        existing.getName(), DateUtils.formatForDisplay(existing.getDate()),
+                        Math.abs(existing.getAmount())),
+                "Возможный дубликат", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        return answer == JOptionPane.YES_OPTION;
+    }
+
     public boolean isSaved() {
         return saved;
     }
@@ -4,11 +4,14 @@ import financialmanager.controller.ExpenseController;
 import financialmanager.model.entities.Expense;
 import financialmanager.model.managers.CreditCardManager;
 import financialmanager.model.enums.ExpenseType;
+import financialmanager.service.TransactionManager;
+import financialmanager.util.DateUtils;
 
 import javax.swing.*;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -18,8 +21,12 @@ public class ExpensePanel extends JPanel {
     private final ExpenseTableModel tableModel;
     private final JTable table;
     private JLabel balanceLabel;
+    private JLabel monthLabel;
+    private JCheckBox allHistoryBox;
+    private YearMonth shownMonth = YearMonth.now();
 
-    public ExpensePanel(ExpenseController controller, CreditCardManager cardManager) {
+    // monthlyView = false - по умолчанию показывается вся история, а не один месяц
+    public ExpensePanel(ExpenseController controller, CreditCardManager cardManager, boolean monthlyView) {
         this.controller = controller;
         this.cardManager = cardManager;
 
@@ -27,10 +34,13 @@ public class ExpensePanel extends JPanel {
 
         // Верхняя панель с информацией
         JPanel topPanel = createTopPanel();
+        allHistoryBox.setSelected(!monthlyView);
         add(topPanel, BorderLayout.NORTH);
 
         // Таблица расходов
         tableModel = new ExpenseTableModel();
+        // Таблица получает добавления, изменения и удаления от сервиса и правит только свои строки
+        controller.addJournal(tableModel);
         table = new JTable(tableModel);
         table.setRowSorter(new TableRowSorter<>(tableModel));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -65,6 +75,22 @@ public class ExpensePanel extends JPanel {
         refreshButton.addActionListener(e -> updateTable());
         infoPanel.add(refreshButton);
 
+        // Навигация по месяцам; "Вся история" снимает отбор по месяцу
+        JPanel monthPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JButton previousButton = new JButton("◀");
+        JButton nextButton = new JButton("▶");
+        monthLabel = new JLabel();
+        previousButton.addActionListener(e -> showMonth(shownMonth.minusMonths(1)));
+        nextButton.addActionListener(e -> showMonth(shownMonth.plusMonths(1)));
+        monthPanel.add(previousButton);
+        monthPanel.add(monthLabel);
+        monthPanel.add(nextButton);
+        infoPanel.add(monthPanel);
+
+        allHistoryBox = new JCheckBox("Вся история");
+        allHistoryBox.addActionListener(e -> updateTable());
+        infoPanel.add(allHistoryBox);
+
         panel.add(infoPanel, BorderLayout.CENTER);
 
         return panel;
@@ -104,7 +130,7 @@ public class ExpensePanel extends JPanel {
         dialog.setVisible(true);
 
         if (dialog.isSaved()) {
-            updateTable();
+            updateBalance();
         }
     }
 
@@ -128,7 +154,7 @@ public class ExpensePanel extends JPanel {
         dialog.setVisible(true);
 
         if (dialog.isSaved()) {
-            updateTable();
+            updateBalance();
         }
     }
 
@@ -151,18 +177,12 @@ public class ExpensePanel extends JPanel {
             Expense expense = tableModel.getOperationAt(modelRow);
 
             try {
-                // Если расход привязан к карте, возвращаем средства
-                if (expense.hasCreditCard()) {
-                    String cardId = expense.getCreditCardId();
-                    var card = cardManager.getCardById(cardId);
-                    if (card != null) {
-                        card.deposit(Math.abs(expense.getAmount())); // Возвращаем средства на карту
-                        cardManager.updateCard(card);
-                    }
+                // Если расход привязан к карте, возвращаем средства в той же транзакции, что и удаление
+                TransactionManager.Transaction transaction = controller.beginTransaction();
+                if (expense.hasCreditCard() && cardManager.getCardById(expense.getCreditCardId()) != null) {
+                    transaction.deposit(expense.getCreditCardId(), expense.getMoney().abs());
                 }
-
-                controller.delete(expense.getId());
-                tableModel.removeOperation(modelRow);
+                transaction.deleteExpense(expense.getId()).commit();
                 updateBalance();
                 JOptionPane.showMessageDialog(this, "Расход успешно удален", "Успех", JOptionPane.INFORMATION_MESSAGE);
             } catch (Exception e) {
@@ -203,12 +223,26 @@ public class ExpensePanel extends JPanel {
         JOptionPane.showMessageDialog(this, "Программа управления расходами запущена", "Запуск", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private void updateTable() {
-        tableModel.updateData(controller.getAll());
+    private void showMonth(YearMonth month) {
+        shownMonth = month;
+        allHistoryBox.setSelected(false);
+        updateTable();
+    }
+
+    public void updateTable() {
+        monthLabel.setText(DateUtils.formatMonthForDisplay(shownMonth));
+        if (allHistoryBox.isSelected()) {
+            tableModel.updateData(controller.getAll(), operation -> true);
+        } else {
+            LocalDate start = shownMonth.atDay(1);
+            LocalDate end = shownMonth.atEndOfMonth();
+            tableModel.updateData(controller.getByDateRange(start, end),
+                    operation -> !operation.getDate().isBefore(start) && !operation.getDate().isAfter(end));
+        }
         updateBalance();
     }
 
-    private void updateBalance() {
+    public void updateBalance() {
         double balance = controller.getTotalBalance();
         balanceLabel.setText(String.format("Общий баланс: %.2f ₽", balance));
     }
@@ -1,13 +1,29 @@
 package financialmanager.view.components;
 
 import financialmanager.model.entities.FinancialOperation;
+import financialmanager.service.OperationJournal;
 
+import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 
-public abstract class FinancialTableModel<T extends FinancialOperation> extends AbstractTableModel {
+// Модель таблицы подписана на изменения сервиса как журнал: каждое изменение переносится в поток
+// Swing и правит только свои строки, без перечитывания данных. События, пришедшие после
+// updateData с уже загруженной операцией, безопасны: добавление существующей строки ее обновляет.
+public abstract class FinancialTableModel<T extends FinancialOperation> extends AbstractTableModel
+        implements OperationJournal<T> {
     protected List<T> data;
     protected final String[] columnNames;
+    // Номер строки по ID операции; меняется только в потоке Swing
+    private final Map<String, Integer> rows = new HashMap<>();
+    // Какие операции показывает таблица (например, выбранный месяц): остальные события пропускаются
+    private Predicate<? super T> filter = operation -> true;
 
     public FinancialTableModel(String[] columnNames) {
         this.columnNames = columnNames;
@@ -40,26 +56,163 @@ public abstract class FinancialTableModel<T extends FinancialOperation> extends
     }
 
     public void updateData(List<T> newData) {
-        this.data = newData;
+        updateData(newData, filter);
+    }
+
+    // filter должен соответствовать запросу, которым получены newData
+    public void updateData(List<T> newData, Predicate<? super T> filter) {
+        this.filter = Objects.requireNonNull(filter, "Фильтр не может быть null");
+        this.data = new ArrayList<>(newData);
+        reindex();
         fireTableDataChanged();
     }
 
     public void addOperation(T operation) {
         data.add(operation);
+        rows.put(operation.getId(), data.size() - 1);
         fireTableRowsInserted(data.size() - 1, data.size() - 1);
     }
 
     public void removeOperation(int rowIndex) {
         if (rowIndex >= 0 && rowIndex < data.size()) {
-            data.remove(rowIndex);
-            fireTableRowsDeleted(rowIndex, rowIndex);
+            removeRow(rowIndex);
         }
     }
 
     public void updateOperation(int rowIndex, T operation) {
         if (rowIndex >= 0 && rowIndex < data.size()) {
+            rows.remove(data.get(rowIndex).getId());
             data.set(rowIndex, operation);
+            rows.put(operation.getId(), rowIndex);
+            fireTableRowsUpdated(rowIndex, rowIndex);
+        }
+    }
+
+    @Override
+    public void recordAdded(T operation) {
+        onEventThread(() -> apply(operation));
+    }
+
+    @Override
+    public void recordUpdated(T operation) {
+        onEventThread(() -> apply(operation));
+    }
+
+    @Override
+    public void recordDeleted(String id) {
+        onEventThread(() -> {
+            Integer row = rows.get(id);
+            if (row != null) {
+                removeRow(row);
+            }
+        });
+    }
+
+    // Новые строки пачки дописываются в конец одним событием
+    @Override
+    public void recordAddedAll(List<T> operations) {
+        List<T> batch = List.copyOf(operations);
+        onEventThread(() -> {
+            int first = data.size();
+            for (T operation : batch) {
+                if (!rows.containsKey(operation.getId()) && filter.test(operation)) {
+                    data.add(operation);
+                    rows.put(operation.getId(), data.size() - 1);
+                } else {
+                    apply(operation);
+                }
+            }
+            if (data.size() > first) {
+                fireTableRowsInserted(first, data.size() - 1);
+            }
+        });
+    }
+
+    @Override
+    public void recordUpdatedAll(List<T> operations) {
+        List<T> batch = List.copyOf(operations);
+        onEventThread(() -> batch.forEach(this::apply));
+    }
+
+    // Строки пачки удаляются подряд идущими участками с конца: по событию на участок,
+    // номера строк пересчитываются один раз начиная с первой удаленной
+    @Override
+    public void recordDeletedAll(List<String> ids) {
+        List<String> batch = List.copyOf(ids);
+        onEventThread(() -> {
+            List<Integer> removed = new ArrayList<>(batch.size());
+            for (String id : batch) {
+                Integer row = rows.remove(id);
+                if (row != null) {
+                    removed.add(row);
+                }
+            }
+            if (removed.isEmpty()) {
+                return;
+            }
+            removed.sort(Collections.reverseOrder());
+            int i = 0;
+            while (i < removed.size()) {
+                int last = removed.get(i);
+                int first = last;
+                while (++i < removed.size() && removed.get(i) == first - 1) {
+                    first--;
+                }
+                data.subList(first, last + 1).clear();
+                fireTableRowsDeleted(first, last);
+            }
+            for (int row = removed.get(removed.size() - 1); row < data.size(); row++) {
+                rows.put(data.get(row).getId(), row);
+            }
+        });
+    }
+
+    // Добавление и изменение: строка появляется, меняется или уходит в зависимости от фильтра
+    private void apply(T operation) {
+        Integer row = rows.get(operation.getId());
+        boolean shown = filter.test(operation);
+        if (row == null) {
+            if (shown) {
+                addOperation(operation);
+            }
+        } else if (shown) {
+            data.set(row, operation);
+            fireTableRowsUpdated(row, row);
+        } else {
+            removeRow(row);
+        }
+    }
+
+    // На место удаленной строки переносится последняя, поэтому номера остальных не меняются.
+    // Порядок строк модели и так не поддерживается (новые дописываются в конец), его задает сортировщик
+    private void removeRow(int rowIndex) {
+        int last = data.size() - 1;
+        rows.remove(data.get(rowIndex).getId());
+        if (rowIndex != last) {
+            T moved = data.get(last);
+            data.set(rowIndex, moved);
+            rows.put(moved.getId(), rowIndex);
+        }
+        data.remove(last);
+        fireTableRowsDeleted(last, last);
+        if (rowIndex != last) {
             fireTableRowsUpdated(rowIndex, rowIndex);
         }
     }
-}
\ No newline at end of file
+
+    private void reindex() {
+        rows.clear();
+        for (int i = 0; i < data.size(); i++) {
+            rows.put(data.get(i).getId(), i);
+        }
+    }
+
+    // Сервис вызывает журналы в потоке изменения: диалоги - из потока Swing, импорт - из фонового
+    private void onEventThread(Runnable change) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            change.run();
+        } else {
+            SwingUtilities.invokeLater(change);
+        }
+    }
+}
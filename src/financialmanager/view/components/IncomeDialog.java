@@ -4,13 +4,17 @@ import financialmanager.controller.IncomeController;
 import financialmanager.model.entities.Category;
 import financialmanager.model.entities.CreditCard;
 import financialmanager.model.entities.Income;
+import financialmanager.model.entities.Money;
+import financialmanager.model.managers.CategoryRegistry;
 import financialmanager.model.managers.CreditCardManager;
 import financialmanager.model.enums.IncomeSource;
+import financialmanager.service.TransactionManager;
 import financialmanager.util.DateUtils;
 import financialmanager.util.IDGenerator;
 
 import javax.swing.*;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -64,11 +68,11 @@ public class IncomeDialog extends JDialog {
 
         fieldPanel.add(new JLabel("Категория:"));
         categoryCombo = new JComboBox<>(new Category[]{
-                new Category("6", "Зарплата"),
-                new Category("7", "Инвестиции"),
-                new Category("8", "Фриланс"),
-                new Category("9", "Бизнес"),
-                new Category("10", "Прочее")
+                CategoryRegistry.intern(new Category("6", "Зарплата")),
+                CategoryRegistry.intern(new Category("7", "Инвестиции")),
+                CategoryRegistry.intern(new Category("8", "Фриланс")),
+                CategoryRegistry.intern(new Category("9", "Бизнес")),
+                CategoryRegistry.intern(new Category("10", "Прочее"))
         });
         fieldPanel.add(categoryCombo);
 
@@ -153,8 +157,8 @@ public class IncomeDialog extends JDialog {
                 return;
             }
 
-            double amount = Double.parseDouble(amountField.getText().trim());
-            if (amount <= 0) {
+            Money amount = Money.of(new BigDecimal(amountField.getText().trim()));
+            if (!amount.isPositive()) {
                 JOptionPane.showMessageDialog(this, "Сумма должна быть больше 0", "Ошибка", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -169,36 +173,37 @@ public class IncomeDialog extends JDialog {
             CreditCard selectedCard = null;
             int selectedCardIndex = cardCombo.getSelectedIndex();
 
+            // Новую операцию сверяем с уже сохраненными до пополнения карты
+            if (incomeToEdit == null) {
+                String cardId = selectedCardIndex > 0 ? cardManager.getAllCards().get(selectedCardIndex - 1).getId() : null;
+                if (!confirmIfDuplicate(new Income(IDGenerator.generateId("INC"), name, amount, date, description, category, source, cardId))) {
+                    return;
+                }
+            }
+
             if (selectedCardIndex > 0) {
                 selectedCard = cardManager.getAllCards().get(selectedCardIndex - 1);
                 creditCardId = selectedCard.getId();
-
-                // ПОПОЛНЯЕМ КАРТУ!
-                try {
-                    double oldBalance = selectedCard.getCurrentBalance();
-                    selectedCard.deposit(amount);
-                    System.out.println("✅ Пополнена карта " + selectedCard.getCardNumber() +
-                            " на " + amount + " ₽. Старый баланс: " + oldBalance +
-                            " ₽, новый: " + selectedCard.getCurrentBalance() + " ₽");
-
-                    // Обновляем карту в менеджере
-                    cardManager.updateCard(selectedCard);
-
-                } catch (IllegalArgumentException e) {
-                    JOptionPane.showMessageDialog(this, "Ошибка пополнения: " + e.getMessage(),
-                            "Ошибка", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
             }
 
-            // Создаем доход
+            // Доход и движение средств по картам проводятся одной транзакцией
+            TransactionManager.Transaction transaction = controller.beginTransaction();
             Income income;
             if (incomeToEdit == null) {
                 String id = IDGenerator.generateId("INC");
                 income = new Income(id, name, amount, date, description, category, source, creditCardId);
 
-                // Сохраняем
-                controller.add(income);
+                // ПОПОЛНЯЕМ КАРТУ И СОХРАНЯЕМ
+                double oldBalance = selectedCard != null ? selectedCard.getCurrentBalance() : 0;
+                if (selectedCard != null) {
+                    transaction.deposit(creditCardId, amount);
+                }
+                transaction.addIncome(income).commit();
+                if (selectedCard != null) {
+                    System.out.println("✅ Пополнена карта " + selectedCard.getCardNumber() +
+                            " на " + amount + " ₽. Старый баланс: " + oldBalance +
+                            " ₽, новый: " + selectedCard.getCurrentBalance() + " ₽");
+                }
 
                 // Сообщение об успехе
                 String successMsg = "✅ Доход успешно добавлен!\n" +
@@ -213,46 +218,19 @@ public class IncomeDialog extends JDialog {
                 JOptionPane.showMessageDialog(this, successMsg, "Успех", JOptionPane.INFORMATION_MESSAGE);
 
             } else {
-                // РЕДАКТИРОВАНИЕ С КОРРЕКТИРОВКОЙ БАЛАНСА КАРТЫ
-                double oldAmount = incomeToEdit.getAmount();
+                // РЕДАКТИРОВАНИЕ С КОРРЕКТИРОВКОЙ БАЛАНСА КАРТЫ: старый доход отменяется на старой
+                // карте, новый зачисляется на выбранную; при ошибке не меняется ничего
                 String oldCardId = incomeToEdit.getCreditCardId();
-
-                // Если была привязана старая карта - отменяем старый доход (возвращаем баланс)
-                if (oldCardId != null && !oldCardId.isEmpty()) {
-                    CreditCard oldCard = cardManager.getCardById(oldCardId);
-                    if (oldCard != null) {
-                        oldCard.withdraw(oldAmount); // Отменяем старый доход
-                        cardManager.updateCard(oldCard);
-                    }
+                if (oldCardId != null && cardManager.getCardById(oldCardId) != null) {
+                    transaction.withdraw(oldCardId, incomeToEdit.getMoney());
                 }
-
-                // Если выбрана новая карта - добавляем доход на нее
                 if (selectedCard != null) {
-                    try {
-                        selectedCard.deposit(amount);
-                        cardManager.updateCard(selectedCard);
-                    } catch (IllegalArgumentException e) {
-                        // Если не удалось добавить на новую карту - восстанавливаем старую
-                        if (oldCardId != null && !oldCardId.isEmpty()) {
-                            CreditCard oldCard = cardManager.getCardById(oldCardId);
-                            if (oldCard != null) {
-                                oldCard.deposit(oldAmount);
-                                cardManager.updateCard(oldCard);
-                            }
-                        }
-                        throw e;
-                    }
+                    transaction.deposit(creditCardId, amount);
                 }
 
-                income = incomeToEdit;
-                income.setName(name);
-                income.setAmount(amount);
-                income.setDate(date);
-                income.setIncomeSource(source);
-                income.setCategory(category);
-                income.setDescription(description);
-                income.setCreditCardId(creditCardId);
-                controller.update(income);
+                income = new Income(incomeToEdit.getId(), name, amount, date, description, category, source,
+                        creditCardId);
+                transaction.updateIncome(income, incomeToEdit.getVersion()).commit();
 
                 JOptionPane.showMessageDialog(this, "✅ Доход обновлен", "Успех", JOptionPane.INFORMATION_MESSAGE);
             }
@@ -267,6 +245,20 @@ public class IncomeDialog extends JDialog {
         }
     }
 
+    private boolean confirmIfDuplicate(Income candidate) {
+        List<Income> duplicates = controller.findDuplicates(candidate);
+        if (duplicates.isEmpty()) {
+            return true;
+        }
+        Income existing = duplicates.get(0);
+        int answer = JOptionPane.showConfirmDialog(this,
+                String.format("Похожий доход уже есть:\n%s, %s, %.2f ₽\n\nВсе равно добавить?",
+                        existing.getName(), DateUtils.formatForDisplay(existing.getDate()),
+                        Math.abs(existing.getAmount())),
+                "Возможный дубликат", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        return answer == JOptionPane.YES_OPTION;
+    }
+
     public boolean isSaved() {
         return saved;
     }
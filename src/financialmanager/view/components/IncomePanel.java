@@ -4,11 +4,14 @@ import financialmanager.controller.IncomeController;
 import financialmanager.model.entities.Income;
 import financialmanager.model.managers.CreditCardManager;
 import financialmanager.model.enums.IncomeSource;
+import financialmanager.service.TransactionManager;
+import financialmanager.util.DateUtils;
 
 import javax.swing.*;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -18,8 +21,12 @@ public class IncomePanel extends JPanel {
     private final IncomeTableModel tableModel;
     private final JTable table;
     private JLabel balanceLabel;
+    private JLabel monthLabel;
+    private JCheckBox allHistoryBox;
+    private YearMonth shownMonth = YearMonth.now();
 
-    public IncomePanel(IncomeController controller, CreditCardManager cardManager) {
+    // monthlyView = false - по умолчанию показывается вся история, а не один месяц
+    public IncomePanel(IncomeController controller, CreditCardManager cardManager, boolean monthlyView) {
         this.controller = controller;
         this.cardManager = cardManager;
 
@@ -27,10 +34,13 @@ public class IncomePanel extends JPanel {
 
         // Верхняя панель с информацией
         JPanel topPanel = createTopPanel();
+        allHistoryBox.setSelected(!monthlyView);
         add(topPanel, BorderLayout.NORTH);
 
         // Таблица доходов
         tableModel = new IncomeTableModel();
+        // Таблица получает добавления, изменения и удаления от сервиса и правит только свои строки
+        controller.addJournal(tableModel);
         table = new JTable(tableModel);
         table.setRowSorter(new TableRowSorter<>(tableModel));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -65,6 +75,22 @@ public class IncomePanel extends JPanel {
         refreshButton.addActionListener(e -> updateTable());
         infoPanel.add(refreshButton);
 
+        // Навигация по месяцам; "Вся история" снимает отбор по месяцу
+        JPanel monthPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JButton previousButton = new JButton("◀");
+        JButton nextButton = new JButton("▶");
+        monthLabel = new JLabel();
+        previousButton.addActionListener(e -> showMonth(shownMonth.minusMonths(1)));
+        nextButton.addActionListener(e -> showMonth(shownMonth.plusMonths(1)));
+        monthPanel.add(previousButton);
+        monthPanel.add(monthLabel);
+        monthPanel.add(nextButton);
+        infoPanel.add(monthPanel);
+
+        allHistoryBox = new JCheckBox("Вся история");
+        allHistoryBox.addActionListener(e -> updateTable());
+        infoPanel.add(allHistoryBox);
+
         panel.add(infoPanel, BorderLayout.CENTER);
 
         return panel;
@@ -104,7 +130,7 @@ public class IncomePanel extends JPanel {
         dialog.setVisible(true);
 
         if (dialog.isSaved()) {
-            updateTable();
+            updateBalance();
         }
     }
 
@@ -128,7 +154,7 @@ public class IncomePanel extends JPanel {
         dialog.setVisible(true);
 
         if (dialog.isSaved()) {
-            updateTable();
+            updateBalance();
         }
     }
 
@@ -151,18 +177,12 @@ public class IncomePanel extends JPanel {
             Income income = tableModel.getOperationAt(modelRow);
 
             try {
-                // Если доход привязан к карте, возвращаем средства
-                if (income.hasCreditCard()) {
-                    String cardId = income.getCreditCardId();
-                    var card = cardManager.getCardById(cardId);
-                    if (card != null) {
-                        card.withdraw(income.getAmount()); // Снимаем доход с карты
-                        cardManager.updateCard(card);
-                    }
+                // Если доход привязан к карте, снимаем его с карты в той же транзакции, что и удаление
+                TransactionManager.Transaction transaction = controller.beginTransaction();
+                if (income.hasCreditCard() && cardManager.getCardById(income.getCreditCardId()) != null) {
+                    transaction.withdraw(income.getCreditCardId(), income.getMoney());
                 }
-
-                controller.delete(income.getId());
-                tableModel.removeOperation(modelRow);
+                transaction.deleteIncome(income.getId()).commit();
                 updateBalance();
                 JOptionPane.showMessageDialog(this, "Доход успешно удален", "Успех", JOptionPane.INFORMATION_MESSAGE);
             } catch (Exception e) {
@@ -203,12 +223,26 @@ public class IncomePanel extends JPanel {
         JOptionPane.showMessageDialog(this, "Программа управления доходами запущена", "Запуск", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private void updateTable() {
-        tableModel.updateData(controller.getAll());
+    private void showMonth(YearMonth month) {
+        shownMonth = month;
+        allHistoryBox.setSelected(false);
+        updateTable();
+    }
+
+    public void updateTable() {
+        monthLabel.setText(DateUtils.formatMonthForDisplay(shownMonth));
+        if (allHistoryBox.isSelected()) {
+            tableModel.updateData(controller.getAll(), operation -> true);
+        } else {
+            LocalDate start = shownMonth.atDay(1);
+            LocalDate end = shownMonth.atEndOfMonth();
+            tableModel.updateData(controller.getByDateRange(start, end),
+                    operation -> !operation.getDate().isBefore(start) && !operation.getDate().isAfter(end));
+        }
         updateBalance();
     }
 
-    private void updateBalance() {
+    public void updateBalance() {
         double balance = controller.getTotalBalance();
         balanceLabel.setText(String.format("Общий баланс: %.2f ₽", balance));
     }
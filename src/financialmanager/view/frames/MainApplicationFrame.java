@@ -4,6 +4,7 @@ import financialmanager.controller.AnalyticsController;
 import financialmanager.controller.ExpenseController;
 import financialmanager.controller.IncomeController;
 import financialmanager.model.managers.CreditCardManager;
+import financialmanager.persistence.CsvStatementImporter;
 import financialmanager.persistence.JsonDataManager;
 import financialmanager.view.components.AnalyticsPanel;
 import financialmanager.view.components.CreditCardPanel;
@@ -12,31 +13,91 @@ import financialmanager.view.components.IncomePanel;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
 
+// Окно открывается сразу с индикатором загрузки; вкладки с данными
+// создаются в showData, когда загрузка в фоне завершена
 public class MainApplicationFrame extends JFrame {
+    private final ExpenseController expenseController;
+    private final IncomeController incomeController;
+    private final AnalyticsController analyticsController;
+    private final JsonDataManager dataManager;
+    private final CreditCardManager cardManager;
+    // Таблицы операций по умолчанию показывают только текущий месяц
+    private final boolean monthlyView;
     private JTabbedPane tabbedPane;
+    private ExpensePanel expensePanel;
+    private IncomePanel incomePanel;
+    private JMenuItem importItem;
+    private JPanel loadingPanel;
+    private JProgressBar progressBar;
+    private JLabel progressLabel;
 
     public MainApplicationFrame(ExpenseController expenseController,
                                 IncomeController incomeController,
                                 AnalyticsController analyticsController,
                                 JsonDataManager dataManager,
-                                CreditCardManager cardManager) {
-        initializeUI(expenseController, incomeController, analyticsController, dataManager, cardManager);
+                                CreditCardManager cardManager,
+                                boolean monthlyView) {
+        this.expenseController = expenseController;
+        this.incomeController = incomeController;
+        this.analyticsController = analyticsController;
+        this.dataManager = dataManager;
+        this.cardManager = cardManager;
+        this.monthlyView = monthlyView;
+        initializeUI();
     }
 
-    private void initializeUI(ExpenseController expenseController,
-                              IncomeController incomeController,
-                              AnalyticsController analyticsController,
-                              JsonDataManager dataManager,
-                              CreditCardManager cardManager) {
+    private void initializeUI() {
         setTitle("Финансовый менеджер");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1000, 700);
         setLocationRelativeTo(null);
 
+        loadingPanel = createLoadingPanel();
+        add(loadingPanel, BorderLayout.CENTER);
+
+        // Создаем меню
+        createMenuBar();
+
+        // Создаем статусную строку
+        createStatusBar();
+
+        setVisible(true);
+    }
+
+    private JPanel createLoadingPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+
+        JPanel content = new JPanel(new BorderLayout(5, 5));
+        progressLabel = new JLabel("Загрузка данных...", SwingConstants.CENTER);
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(300, 20));
+        content.add(progressLabel, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+
+        panel.add(content);
+        return panel;
+    }
+
+    // Вызывается из EDT по мере загрузки
+    public void showLoadingProgress(String stage, int completed, int total) {
+        progressLabel.setText(stage);
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(total);
+        progressBar.setValue(completed);
+    }
+
+    // Заменяет индикатор загрузки вкладками с данными; вызывается из EDT
+    public void showData() {
         // Создаем панели с передачей менеджера карт
-        ExpensePanel expensePanel = new ExpensePanel(expenseController, cardManager);
-        IncomePanel incomePanel = new IncomePanel(incomeController, cardManager);
+        expensePanel = new ExpensePanel(expenseController, cardManager, monthlyView);
+        incomePanel = new IncomePanel(incomeController, cardManager, monthlyView);
         AnalyticsPanel analyticsPanel = new AnalyticsPanel(analyticsController,
                 expenseController,
                 incomeController,
@@ -50,25 +111,25 @@ public class MainApplicationFrame extends JFrame {
         tabbedPane.addTab("📈 Аналитика", analyticsPanel);
         tabbedPane.addTab("💳 Карты", creditCardPanel);
 
+        remove(loadingPanel);
         add(tabbedPane, BorderLayout.CENTER);
-
-        // Создаем меню
-        createMenuBar();
-
-        // Создаем статусную строку
-        createStatusBar();
-
-        setVisible(true);
+        importItem.setEnabled(true);
+        revalidate();
+        repaint();
     }
 
     private void createMenuBar() {
         JMenuBar menuBar = new JMenuBar();
 
         JMenu fileMenu = new JMenu("Файл");
+        importItem = new JMenuItem("Импорт выписки CSV...");
+        // Импорт доступен после загрузки данных
+        importItem.setEnabled(false);
         JMenuItem exportExpensesItem = new JMenuItem("Экспорт расходов...");
         JMenuItem exportIncomesItem = new JMenuItem("Экспорт доходов...");
         JMenuItem exitItem = new JMenuItem("Выход");
 
+        importItem.addActionListener(e -> importStatement());
         exportExpensesItem.addActionListener(e -> showExportInfo("расходов"));
         exportIncomesItem.addActionListener(e -> showExportInfo("доходов"));
         exitItem.addActionListener(e -> {
@@ -76,11 +137,14 @@ public class MainApplicationFrame extends JFrame {
                     "Выйти из программы?",
                     "Выход", JOptionPane.YES_NO_OPTION);
 
+            // Выход тем же путем, что и закрытие окна: с сохранением и закрытием журналов
             if (result == JOptionPane.YES_OPTION) {
-                System.exit(0);
+                dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
             }
         });
 
+        fileMenu.add(importItem);
+        fileMenu.addSeparator();
         fileMenu.add(exportExpensesItem);
         fileMenu.add(exportIncomesItem);
         fileMenu.addSeparator();
@@ -98,6 +162,68 @@ public class MainApplicationFrame extends JFrame {
         setJMenuBar(menuBar);
     }
 
+    private void importStatement() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Импорт выписки CSV (Дата;Сумма;Название;Описание;Категория)");
+        fileChooser.setCurrentDirectory(new File("."));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path file = fileChooser.getSelectedFile().toPath();
+        importItem.setEnabled(false);
+        // Разбор и добавление идут в фоне; расходы с отрицательной суммой, доходы с положительной.
+        // Операции, похожие на сохраненные до импорта (выписка загружена повторно), пропускаются
+        Set<String> importedIds = new HashSet<>();
+        int[] skipped = new int[1];
+        new SwingWorker<CsvStatementImporter.ImportReport, Void>() {
+            @Override
+            protected CsvStatementImporter.ImportReport doInBackground() throws Exception {
+                CsvStatementImporter importer = new CsvStatementImporter(
+                        CsvStatementImporter.ColumnMapping.defaults());
+                return importer.importFile(file,
+                        batch -> skipped[0] += expenseController.addAllNew(batch, importedIds),
+                        batch -> skipped[0] += incomeController.addAllNew(batch, importedIds));
+            }
+
+            @Override
+            protected void done() {
+                importItem.setEnabled(true);
+                try {
+                    showImportReport(get(), skipped[0]);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(MainApplicationFrame.this,
+                            "Ошибка при импорте: " + cause.getMessage(),
+                            "Ошибка", JOptionPane.ERROR_MESSAGE);
+                }
+                // Строки импортированных операций таблицы уже получили от сервиса
+                expensePanel.updateBalance();
+                incomePanel.updateBalance();
+            }
+        }.execute();
+    }
+
+    private void showImportReport(CsvStatementImporter.ImportReport report, int skipped) {
+        StringBuilder message = new StringBuilder();
+        message.append("Прочитано расходов: ").append(report.expenses()).append('\n');
+        message.append("Прочитано доходов: ").append(report.incomes()).append('\n');
+        message.append("Пропущено дубликатов: ").append(skipped).append('\n');
+        message.append("Отклонено строк: ").append(report.rejectedCount());
+
+        // В окне - первые отклоненные строки, полный список в консоли
+        int shown = 0;
+        for (CsvStatementImporter.RejectedLine line : report.rejected()) {
+            System.err.println("✗ Строка " + line.lineNumber() + ": " + line.reason() + " [" + line.line() + "]");
+            if (shown++ < 10) {
+                message.append("\n  строка ").append(line.lineNumber()).append(": ").append(line.reason());
+            }
+        }
+
+        JOptionPane.showMessageDialog(this, message.toString(), "Импорт завершен",
+                report.rejectedCount() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
+
     private void showExportInfo(String dataType) {
         JOptionPane.showMessageDialog(this,
                 "Экспорт " + dataType + " в JSON доступен во вкладке 'Аналитика'",